@@ -1,21 +1,24 @@
 package com.simon.stunningfiesta.artifact;
 
 import com.simon.stunningfiesta.wizard.Wizard;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.ManyToOne;
+import jakarta.persistence.*;
 
 import java.io.Serializable;
 
 @Entity
 public class Artifact implements Serializable {
     @Id
-    @GeneratedValue
+    // Ids are handed out in blocks of 50 per sequence call, which also lets Hibernate batch the inserts.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "artifact_seq")
+    @SequenceGenerator(name = "artifact_seq", allocationSize = 50)
     private Integer id;
     private String name;
     private String description;
     private String imageUrl;
+    private String thumbnailUrl;
+
+    @Version
+    private Integer version;
 
     @ManyToOne
     private Wizard owner;
@@ -39,6 +42,10 @@ public class Artifact implements Serializable {
         this.imageUrl = imageUrl;
     }
 
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public void setOwner(Wizard owner) {
         this.owner = owner;
     }
@@ -59,6 +66,18 @@ public class Artifact implements Serializable {
         return imageUrl;
     }
 
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public Wizard getOwner() {
         return owner;
     }
@@ -0,0 +1,4 @@
+package com.simon.stunningfiesta.artifact;
+
+public record ArtifactBulkResult(int affected) {
+}
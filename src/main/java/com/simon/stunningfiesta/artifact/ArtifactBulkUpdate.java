@@ -0,0 +1,21 @@
+package com.simon.stunningfiesta.artifact;
+
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+
+/**
+ * Body of PATCH /artifacts, fields left null are not changed.
+ */
+public record ArtifactBulkUpdate(ArtifactSelection where,
+                                 String description,
+                                 String imageUrl) {
+
+    public void validate() {
+        if (where == null) {
+            throw new BadRequestException("where is required.");
+        }
+        where.validate();
+        if (description == null && imageUrl == null) {
+            throw new BadRequestException("Nothing to update, provide description and/or imageUrl.");
+        }
+    }
+}
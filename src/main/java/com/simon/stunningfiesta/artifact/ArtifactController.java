@@ -1,47 +1,163 @@
 package com.simon.stunningfiesta.artifact;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.simon.stunningfiesta.artifact.converts.ArtifactDtoToArtifactConverter;
+import com.simon.stunningfiesta.artifact.converts.ArtifactSummaryToArtifactDtoConverter;
 import com.simon.stunningfiesta.artifact.converts.ArtifactToArtifactDtoConverter;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.CursorPage;
+import com.simon.stunningfiesta.system.MultiGetResult;
+import com.simon.stunningfiesta.system.NdjsonWriter;
 import com.simon.stunningfiesta.system.Result;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("${api.endpoint.base-url}/artifacts")
 public class ArtifactController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactController.class);
+
     private final ArtifactService artifactService;
 
     private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
 
     private final ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter;
 
+    private final ArtifactSummaryToArtifactDtoConverter artifactSummaryToArtifactDtoConverter;
+
+    private final ArtifactImportService artifactImportService;
+
+    private final CatalogVersion catalogVersion;
+
+    private final ObjectMapper objectMapper;
+
     public ArtifactController(ArtifactService artifactService,
                               ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
-                              ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter) {
+                              ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter,
+                              ArtifactSummaryToArtifactDtoConverter artifactSummaryToArtifactDtoConverter,
+                              ArtifactImportService artifactImportService,
+                              CatalogVersion catalogVersion,
+                              ObjectMapper objectMapper) {
         this.artifactService = artifactService;
         this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
         this.artifactDtoToArtifactConverter = artifactDtoToArtifactConverter;
+        this.artifactSummaryToArtifactDtoConverter = artifactSummaryToArtifactDtoConverter;
+        this.artifactImportService = artifactImportService;
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{artifactId}")
-    public Result findArtifactById(@PathVariable Integer artifactId) {
-        Artifact foundArtifact = artifactService.findById(artifactId);
+    public Result findArtifactById(@PathVariable Integer artifactId,
+                                   @RequestParam(required = false) String fields,
+                                   WebRequest webRequest) {
+        if (fields != null) {
+            // Sparse reads skip the DTO cache, the version columns alone are enough for the ETag.
+            if (webRequest.checkNotModified(artifactService.findETagById(artifactId))) {
+                return null;
+            }
+            return Result.success("Find One Success")
+                    .withData(artifactService.findFieldsById(artifactId, fields));
+        }
+        // A conditional GET is answered from the version columns only; on a match nothing is loaded or serialized.
+        boolean conditional = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+        if (conditional && webRequest.checkNotModified(artifactService.findETagById(artifactId))) {
+            return null;
+        }
+        // Not cached as a DTO: it embeds the owner, which the summary takes from the wizards cache on every read.
+        ArtifactSummary summary = artifactService.findSummaryById(artifactId);
+        if (!conditional) {
+            webRequest.checkNotModified(summary.etag());
+        }
         return Result.success("Find One Success")
-                .withData(artifactToArtifactDtoConverter.convert(foundArtifact));
+                .withData(artifactSummaryToArtifactDtoConverter.convert(summary));
     }
 
     @GetMapping
-    public Result findAllArtifacts() {
+    public Result findAllArtifacts(@RequestParam(required = false) String ids,
+                                   @RequestParam(required = false) String after,
+                                   @RequestParam(required = false) Integer limit,
+                                   @RequestParam(required = false) String fields,
+                                   WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogVersion.etag())) {
+            return null;
+        }
+        if (ids != null) {
+            List<Integer> artifactIds = MultiGetResult.parseIds(ids);
+            return Result.success("Find Many Success")
+                    .withData(MultiGetResult.of(artifactIds, artifactService.findSummariesByIds(artifactIds),
+                            artifactSummaryToArtifactDtoConverter::convert));
+        }
+        if (fields != null) {
+            return findArtifactFields(after, limit, fields);
+        }
+        if (after != null || limit != null) {
+            return findArtifactPage(after, limit);
+        }
         return Result.success("Find All Success")
                 .withData(artifactService
-                        .findAll()
+                        .findAllSummaries()
                         .stream()
-                        .map(artifactToArtifactDtoConverter::convert)
+                        .map(artifactSummaryToArtifactDtoConverter::convert)
                         .collect(Collectors.toList()));
     }
 
+    // Streams every artifact as NDJSON instead of building the whole list, selected with "Accept: application/x-ndjson".
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportAllArtifacts(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper, response.getOutputStream());
+        artifactService.exportAll(artifact -> ndjsonWriter.write(artifactSummaryToArtifactDtoConverter.convert(artifact)));
+        ndjsonWriter.flush();
+    }
+
+    private Result findArtifactPage(String after, Integer limit) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        List<ArtifactSummary> artifacts = artifactService.findSummaryPage(CursorPage.decodeCursor(after), pageSize);
+        List<ArtifactDto> artifactDtos = artifacts.stream()
+                .map(artifactSummaryToArtifactDtoConverter::convert)
+                .collect(Collectors.toList());
+        Integer lastId = artifacts.isEmpty() ? null : artifacts.get(artifacts.size() - 1).id();
+        return Result.success("Find Page Success")
+                .withData(CursorPage.of(artifactDtos, pageSize, lastId));
+    }
+
+    // Sparse fieldsets: only the requested columns are selected and serialized, paged the same way when asked to.
+    private Result findArtifactFields(String after, Integer limit, String fields) {
+        if (after == null && limit == null) {
+            return Result.success("Find All Success")
+                    .withData(artifactService.findFields(fields, null, null));
+        }
+        int pageSize = CursorPage.normalizeLimit(limit);
+        List<Map<String, Object>> artifacts = artifactService.findFields(fields, CursorPage.decodeCursor(after), pageSize);
+        Integer lastId = artifacts.isEmpty() ? null : (Integer) artifacts.get(artifacts.size() - 1).get("id");
+        return Result.success("Find Page Success")
+                .withData(CursorPage.of(artifacts, pageSize, lastId));
+    }
+
+    @GetMapping("/search")
+    public Result searchArtifacts(@RequestParam("q") String query,
+                                  @RequestParam(required = false) Integer limit) {
+        return Result.success("Search Success")
+                .withData(artifactService.search(query, CursorPage.normalizeLimit(limit)));
+    }
+
     @PostMapping
     public Result saveArtifact(@Valid @RequestBody ArtifactDto artifactDto) {
         Artifact savedArtifact = artifactService.save(artifactDtoToArtifactConverter.convert(artifactDto));
@@ -50,6 +166,19 @@ public class ArtifactController {
                 .withData(savedArtifactDto);
     }
 
+    // Accepts either a JSON array or an NDJSON stream of artifacts, both are read item by item.
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Result importArtifacts(InputStream inputStream) throws IOException {
+        try (MappingIterator<ArtifactDto> artifactDtos = objectMapper.readerFor(ArtifactDto.class).readValues(inputStream)) {
+            return Result.success("Import Success")
+                    .withData(artifactImportService.importAll(artifactDtos));
+        } catch (JsonProcessingException | RuntimeJsonMappingException ex) {
+            // The parser's message quotes the payload and Java types, the client gets a fixed one.
+            LOGGER.debug("Malformed import payload", ex);
+            throw new BadRequestException("Malformed import payload.");
+        }
+    }
+
     @PutMapping("/{artifactId}")
     public Result updateArtifactById(@PathVariable Integer artifactId,
                                      @Valid @RequestBody ArtifactDto artifactDto) {
@@ -58,6 +187,18 @@ public class ArtifactController {
                 .withData(artifactToArtifactDtoConverter.convert(updatedArtifact));
     }
 
+    @PatchMapping
+    public Result updateArtifacts(@RequestBody ArtifactBulkUpdate bulkUpdate) {
+        return Result.success("Bulk Update Success")
+                .withData(new ArtifactBulkResult(artifactService.updateAll(bulkUpdate)));
+    }
+
+    @DeleteMapping
+    public Result deleteArtifacts(@RequestBody ArtifactSelection selection) {
+        return Result.success("Bulk Delete Success")
+                .withData(new ArtifactBulkResult(artifactService.deleteAll(selection)));
+    }
+
     @DeleteMapping("/{artifactId}")
     public Result deleteArtifactById(@PathVariable Integer artifactId) {
         artifactService.deleteById(artifactId);
@@ -11,6 +11,8 @@ public record ArtifactDto(
         String description,
         @NotEmpty(message = "imageUrl is required")
         String imageUrl,
-        WizardDto owner
+        WizardDto owner,
+        // Set by the server once an image is uploaded, list views should show this instead of imageUrl.
+        String thumbnailUrl
 ) {
 }
@@ -0,0 +1,20 @@
+package com.simon.stunningfiesta.artifact;
+
+import java.util.Map;
+
+/**
+ * The outcome of importing one item of a bulk import, index is the item's position in the request.
+ */
+public record ArtifactImportResult(int index,
+                                   Integer id,
+                                   boolean imported,
+                                   Map<String, String> errors) {
+
+    public static ArtifactImportResult imported(int index, Integer id) {
+        return new ArtifactImportResult(index, id, true, Map.of());
+    }
+
+    public static ArtifactImportResult rejected(int index, Map<String, String> errors) {
+        return new ArtifactImportResult(index, null, false, errors);
+    }
+}
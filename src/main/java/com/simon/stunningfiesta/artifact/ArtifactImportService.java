@@ -0,0 +1,111 @@
+package com.simon.stunningfiesta.artifact;
+
+import com.simon.stunningfiesta.artifact.converts.ArtifactDtoToArtifactConverter;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports artifacts in bulk.
+ * Items are validated one by one and the valid ones are persisted in chunks, one transaction per chunk,
+ * so a huge import neither holds one long transaction nor pays one transaction per row.
+ * Inserts of a chunk are sent as JDBC batches (see hibernate.jdbc.batch_size) with ids taken from pooled sequence blocks.
+ */
+@Service
+public class ArtifactImportService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactImportService.class);
+
+    static final int CHUNK_SIZE = 500;
+
+    // The cause may carry SQL or constraint text, it is logged rather than handed to the client.
+    static final String CHUNK_FAILED = "The chunk of this item could not be saved.";
+
+    private final ArtifactService artifactService;
+
+    private final ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    public ArtifactImportService(ArtifactService artifactService,
+                                 ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter,
+                                 Validator validator,
+                                 TransactionTemplate transactionTemplate,
+                                 EntityManager entityManager) {
+        this.artifactService = artifactService;
+        this.artifactDtoToArtifactConverter = artifactDtoToArtifactConverter;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+    }
+
+    public ArtifactImportSummary importAll(Iterator<ArtifactDto> artifactDtos) {
+        List<ArtifactImportResult> results = new ArrayList<>();
+        List<Artifact> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(CHUNK_SIZE);
+        for (int index = 0; artifactDtos.hasNext(); index++) {
+            ArtifactDto artifactDto = artifactDtos.next();
+            Set<ConstraintViolation<ArtifactDto>> violations = validator.validate(artifactDto);
+            if (!violations.isEmpty()) {
+                results.add(ArtifactImportResult.rejected(index, toErrorMap(violations)));
+                continue;
+            }
+            // An import always creates new artifacts, ids sent by the client are ignored.
+            chunk.add(artifactDtoToArtifactConverter.convert(artifactDto).withId(null));
+            chunkIndexes.add(index);
+            if (chunk.size() == CHUNK_SIZE) {
+                results.addAll(saveChunk(chunk, chunkIndexes));
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(saveChunk(chunk, chunkIndexes));
+        }
+        results.sort((r1, r2) -> Integer.compare(r1.index(), r2.index()));
+        return ArtifactImportSummary.of(results);
+    }
+
+    private List<ArtifactImportResult> saveChunk(List<Artifact> chunk, List<Integer> chunkIndexes) {
+        List<ArtifactImportResult> results = new ArrayList<>(chunk.size());
+        try {
+            List<Artifact> savedArtifacts = transactionTemplate.execute(status -> {
+                List<Artifact> saved = artifactService.saveAll(chunk);
+                entityManager.flush();
+                // Keep the persistence context from growing with the import.
+                entityManager.clear();
+                return saved;
+            });
+            for (int i = 0; i < savedArtifacts.size(); i++) {
+                results.add(ArtifactImportResult.imported(chunkIndexes.get(i), savedArtifacts.get(i).getId()));
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Importing the chunk of items {} to {} failed", chunkIndexes.get(0),
+                    chunkIndexes.get(chunkIndexes.size() - 1), ex);
+            chunkIndexes.forEach(index -> results.add(ArtifactImportResult.rejected(index, Map.of("chunk", CHUNK_FAILED))));
+        }
+        return results;
+    }
+
+    private static Map<String, String> toErrorMap(Set<ConstraintViolation<ArtifactDto>> violations) {
+        return violations.stream()
+                .collect(Collectors.toMap(
+                        violation -> violation.getPropertyPath().toString(),
+                        ConstraintViolation::getMessage,
+                        (message1, message2) -> message1));
+    }
+}
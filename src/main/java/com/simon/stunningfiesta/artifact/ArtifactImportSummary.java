@@ -0,0 +1,14 @@
+package com.simon.stunningfiesta.artifact;
+
+import java.util.List;
+
+public record ArtifactImportSummary(int total,
+                                    int imported,
+                                    int rejected,
+                                    List<ArtifactImportResult> items) {
+
+    public static ArtifactImportSummary of(List<ArtifactImportResult> items) {
+        int imported = (int) items.stream().filter(ArtifactImportResult::imported).count();
+        return new ArtifactImportSummary(items.size(), imported, items.size() - imported, items);
+    }
+}
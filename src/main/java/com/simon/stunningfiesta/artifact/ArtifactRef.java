@@ -0,0 +1,10 @@
+package com.simon.stunningfiesta.artifact;
+
+/**
+ * The columns a bulk operation needs to keep the search index and caches in step, read before the bulk statement.
+ */
+public record ArtifactRef(Integer id,
+                          String name,
+                          String description,
+                          Integer ownerId) {
+}
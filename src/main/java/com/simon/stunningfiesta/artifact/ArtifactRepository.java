@@ -1,8 +1,110 @@
 package com.simon.stunningfiesta.artifact;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import com.simon.stunningfiesta.wizard.Wizard;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface ArtifactRepository extends JpaRepository<Artifact, Integer> {
+    String SUMMARY_SELECT = "select new com.simon.stunningfiesta.artifact.ArtifactSummary("
+            + "a.id, a.name, a.description, a.imageUrl, a.thumbnailUrl, a.version, o.id, o.name, "
+            + "(select count(oa) from Artifact oa where oa.owner = o), o.version) "
+            + "from Artifact a left join a.owner o ";
+
+    // Artifacts, owner names and owner artifact counts in one statement, no matter how many rows or owners.
+    @Query(SUMMARY_SELECT + "order by a.id")
+    List<ArtifactSummary> findAllSummaries();
+
+    // Seek query for keyset pagination, the cost of a page doesn't depend on how deep the client has paged.
+    @Query(SUMMARY_SELECT + "where a.id > :afterId order by a.id")
+    List<ArtifactSummary> findSummariesAfter(Integer afterId, Pageable pageable);
+
+    // The artifacts of many owners in one statement, so expanding a list of wizards doesn't cost a query per wizard.
+    @Query(SUMMARY_SELECT + "where o.id in :ownerIds order by a.id")
+    List<ArtifactSummary> findSummariesByOwnerIds(Collection<Integer> ownerIds);
+
+    @Query(SUMMARY_SELECT + "where o.id = :ownerId and a.id > :afterId order by a.id")
+    List<ArtifactSummary> findSummariesByOwnerAfter(Integer ownerId, Integer afterId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "where a.id in :ids")
+    List<ArtifactSummary> findSummariesByIds(Collection<Integer> ids);
+
+    @Query(SUMMARY_SELECT + "where a.id = :id")
+    Optional<ArtifactSummary> findSummaryById(Integer id);
+
+    // Just the version columns, enough to answer a conditional GET.
+    @Query("select new com.simon.stunningfiesta.artifact.ArtifactVersion(a.id, a.version, o.id, o.version) "
+            + "from Artifact a left join a.owner o where a.id = :id")
+    Optional<ArtifactVersion> findVersionById(Integer id);
+
+    // Scrolls the summaries with a server side cursor, used by the NDJSON export. Projections are not managed, so the
+    // persistence context stays empty however many rows go by.
+    @Query(SUMMARY_SELECT + "order by a.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ArtifactSummary> streamAllSummaries();
+
+    String REF_SELECT = "select new com.simon.stunningfiesta.artifact.ArtifactRef(a.id, a.name, a.description, a.owner.id) "
+            + "from Artifact a ";
+
+    @Query(REF_SELECT + "where a.id in :ids")
+    List<ArtifactRef> findRefsByIds(Collection<Integer> ids);
+
+    @Query(REF_SELECT + "where (:ownerId is null or a.owner.id = :ownerId) "
+            + "and (:nameContains is null or lower(a.name) like lower(concat('%', :nameContains, '%')))")
+    List<ArtifactRef> findRefsByFilter(Integer ownerId, String nameContains);
+
+    // Scrolls just the indexed columns with a server side cursor, used to rebuild the search index.
+    @Query(REF_SELECT + "order by a.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ArtifactRef> streamAllRefs();
+
+    @Query("select a.id from Artifact a where a.owner.id in :ownerIds")
+    List<Integer> findIdsByOwnerIds(Collection<Integer> ownerIds);
+
+    @Query("select a.id from Artifact a where a.owner.id = :ownerId order by a.id")
+    List<Integer> findIdsByOwnerId(Integer ownerId, Pageable pageable);
+
+    @Query("select count(a) from Artifact a where a.owner.id = :ownerId")
+    long countByOwnerId(Integer ownerId);
+
+    // Set-based bulk statements, they bypass the persistence context, so it is flushed before and cleared after.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Artifact a set a.description = coalesce(:description, a.description), "
+            + "a.imageUrl = coalesce(:imageUrl, a.imageUrl), a.version = a.version + 1 where a.id in :ids")
+    int updateAllByIds(Collection<Integer> ids, String description, String imageUrl);
+
+    // Moves artifacts to another owner without loading either owner's artifacts collection. It is a compare-and-set
+    // on the owner read beforehand: rows a concurrent transfer has moved meanwhile no longer match.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Artifact a set a.owner = :owner, a.version = a.version + 1 where a.id in :ids "
+            + "and ((:expectedOwnerId is null and a.owner is null) or a.owner.id = :expectedOwnerId)")
+    int updateOwnerByIds(Collection<Integer> ids, Integer expectedOwnerId, Wizard owner);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Artifact a where a.id in :ids")
+    int deleteAllByIds(Collection<Integer> ids);
+
+    // Like deleteAllByIds, but leaves the rows another owner has taken over since the ids were read.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Artifact a where a.id in :ids and a.owner.id = :ownerId")
+    int deleteAllByIdsAndOwnerId(Collection<Integer> ids, Integer ownerId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Artifact a set a.owner = null, a.version = a.version + 1 where a.owner.id = :ownerId")
+    int unassignAllByOwnerId(Integer ownerId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Artifact a where a.owner.id = :ownerId")
+    int deleteAllByOwnerId(Integer ownerId);
 }
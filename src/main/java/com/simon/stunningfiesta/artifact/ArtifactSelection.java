@@ -0,0 +1,27 @@
+package com.simon.stunningfiesta.artifact;
+
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+
+import java.util.List;
+
+/**
+ * Which artifacts a bulk operation applies to: either an explicit list of ids, or a filter on owner and/or name.
+ */
+public record ArtifactSelection(List<Integer> ids,
+                                Integer ownerId,
+                                String nameContains) {
+
+    public boolean byIds() {
+        return ids != null;
+    }
+
+    public void validate() {
+        boolean filtered = ownerId != null || nameContains != null;
+        if (byIds() == filtered) {
+            throw new BadRequestException("Select artifacts either by ids or by ownerId/nameContains.");
+        }
+        if (byIds() && ids.isEmpty()) {
+            throw new BadRequestException("ids must not be empty.");
+        }
+    }
+}
@@ -1,36 +1,215 @@
 package com.simon.stunningfiesta.artifact;
 
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchHit;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeEntityType;
+import com.simon.stunningfiesta.change.ChangeOperation;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.AfterCommit;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.NotFoundCache;
+import com.simon.stunningfiesta.system.SparseFields;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import com.simon.stunningfiesta.wizard.Wizard;
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import com.simon.stunningfiesta.wizard.WizardSummary;
+import com.simon.stunningfiesta.wizard.leaderboard.WizardLeaderboard;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ArtifactService {
+    private static final int MULTI_GET_CHUNK_SIZE = 100;
+
+    private static final SparseFields<Artifact> FIELDS = new SparseFields<>(Artifact.class)
+            .with("name", source -> source.root().get("name"))
+            .with("description", source -> source.root().get("description"))
+            .with("imageUrl", source -> source.root().get("imageUrl"))
+            .with("thumbnailUrl", source -> source.root().get("thumbnailUrl"))
+            .with("owner.id", source -> source.join("owner").get("id"))
+            .with("owner.name", source -> source.join("owner").get("name"))
+            .with("owner.numbersOfArtifacts", source -> source.count(Artifact.class, "owner", source.join("owner")));
+
     private final ArtifactRepository artifactRepository;
 
-    public ArtifactService(ArtifactRepository artifactRepository) {
+    private final WizardRepository wizardRepository;
+
+    private final EntityManager entityManager;
+
+    private final ArtifactSearchIndex artifactSearchIndex;
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final CatalogVersion catalogVersion;
+
+    private final CatalogCache catalogCache;
+
+    private final ChangeService changeService;
+
+    private final WizardLeaderboard wizardLeaderboard;
+
+    private final NotFoundCache notFoundCache;
+
+    public ArtifactService(ArtifactRepository artifactRepository,
+                           WizardRepository wizardRepository,
+                           EntityManager entityManager,
+                           ArtifactSearchIndex artifactSearchIndex,
+                           ImageBlobStore imageBlobStore,
+                           CatalogVersion catalogVersion,
+                           CatalogCache catalogCache,
+                           ChangeService changeService,
+                           WizardLeaderboard wizardLeaderboard,
+                           NotFoundCache notFoundCache) {
         this.artifactRepository = artifactRepository;
+        this.wizardRepository = wizardRepository;
+        this.entityManager = entityManager;
+        this.artifactSearchIndex = artifactSearchIndex;
+        this.imageBlobStore = imageBlobStore;
+        this.catalogVersion = catalogVersion;
+        this.catalogCache = catalogCache;
+        this.changeService = changeService;
+        this.wizardLeaderboard = wizardLeaderboard;
+        this.notFoundCache = notFoundCache;
     }
 
     public void deleteById(Integer id) {
-        findById(id);
+        Artifact artifact = findById(id);
+        Wizard owner = artifact.getOwner();
+        if (owner != null) {
+            // The owner's number of artifacts changes, so must its version (and ETag) and its cached reads.
+            catalogCache.evictWizard(owner.getId());
+            changeService.record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, owner.getId());
+            // Only a collection loaded earlier in the transaction would persist it again on flush through the cascade,
+            // an unloaded one is left alone rather than loaded just for this.
+            if (Hibernate.isInitialized(owner.getArtifacts())) {
+                owner.removeArtifact(artifact);
+            }
+            entityManager.lock(owner, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+            Integer ownerId = owner.getId();
+            AfterCommit.run(() -> wizardLeaderboard.adjust(ownerId, -1));
+        }
         artifactRepository.deleteById(id);
+        AfterCommit.run(() -> {
+            artifactSearchIndex.remove(id);
+            imageBlobStore.remove(id);
+        });
+        catalogCache.evictArtifact(id);
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, id);
+        catalogVersion.increment();
     }
 
     public Artifact findById(Integer artifactId) {
-        return artifactRepository.findById(artifactId)
-                .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
+        return notFoundCache.find("artifact", artifactId, () -> artifactRepository.findById(artifactId));
     }
 
     public List<Artifact> findAll() {
         return artifactRepository.findAll();
     }
 
+    /**
+     * Finds the artifact through the cache, with its owner's fields from the (separately evicted) wizards cache.
+     */
+    public ArtifactSummary findSummaryById(Integer artifactId) {
+        ArtifactSummary artifact = catalogCache.get(CatalogCache.ARTIFACTS, artifactId,
+                () -> notFoundCache.find("artifact", artifactId, () -> artifactRepository.findSummaryById(artifactId)));
+        if (artifact.ownerId() == null) {
+            return artifact;
+        }
+        return artifact.withOwner(catalogCache.get(CatalogCache.WIZARDS, artifact.ownerId(),
+                () -> wizardRepository.findSummaryById(artifact.ownerId()).orElse(null)));
+    }
+
+    /**
+     * Finds many artifacts at once: cached summaries first, the rest with IN queries. Missing ids are left out.
+     * Their owners are read the same way, so each distinct owner costs at most one row.
+     */
+    public Map<Integer, ArtifactSummary> findSummariesByIds(List<Integer> artifactIds) {
+        Map<Integer, ArtifactSummary> artifacts = catalogCache.getAll(CatalogCache.ARTIFACTS, artifactIds,
+                MULTI_GET_CHUNK_SIZE, artifactRepository::findSummariesByIds, ArtifactSummary::id);
+        List<Integer> ownerIds = artifacts.values().stream()
+                .map(ArtifactSummary::ownerId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Integer, WizardSummary> owners = catalogCache.getAll(CatalogCache.WIZARDS, ownerIds,
+                MULTI_GET_CHUNK_SIZE, wizardRepository::findSummariesByIds, WizardSummary::id);
+        artifacts.replaceAll((id, artifact) -> artifact.withOwner(owners.get(artifact.ownerId())));
+        return artifacts;
+    }
+
+    public String findETagById(Integer artifactId) {
+        return notFoundCache.find("artifact", artifactId,
+                () -> artifactRepository.findVersionById(artifactId).map(ArtifactVersion::etag));
+    }
+
+    public List<ArtifactSummary> findAllSummaries() {
+        return artifactRepository.findAllSummaries();
+    }
+
+    public List<ArtifactSummary> findSummaryPage(Integer afterId, int limit) {
+        return artifactRepository.findSummariesAfter(afterId, PageRequest.ofSize(limit));
+    }
+
+    /**
+     * Selects only the requested fields (see {@link SparseFields}), optionally one keyset page after {@code afterId}.
+     */
+    public List<Map<String, Object>> findFields(String fields, Integer afterId, Integer limit) {
+        return FIELDS.findAll(entityManager, FIELDS.parse(fields), afterId, limit);
+    }
+
+    public Map<String, Object> findFieldsById(Integer artifactId, String fields) {
+        return FIELDS.findById(entityManager, FIELDS.parse(fields), artifactId)
+                .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
+    }
+
+    /**
+     * Hands every artifact summary to the consumer while scrolling the table.
+     * Summaries are projections, nothing is loaded into the persistence context however large the export is.
+     */
+    public void exportAll(Consumer<ArtifactSummary> consumer) {
+        try (Stream<ArtifactSummary> artifacts = artifactRepository.streamAllSummaries()) {
+            artifacts.forEach(consumer);
+        }
+    }
+
+    public List<ArtifactSearchHit> search(String query, int limit) {
+        return artifactSearchIndex.search(query, limit);
+    }
+
     public Artifact save(Artifact artifact) {
-        return artifactRepository.save(artifact);
+        Artifact savedArtifact = artifactRepository.save(artifact);
+        indexAfterCommit(savedArtifact);
+        notFoundCache.forget("artifact", savedArtifact.getId());
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, savedArtifact.getId());
+        catalogVersion.increment();
+        return savedArtifact;
+    }
+
+    public List<Artifact> saveAll(List<Artifact> artifacts) {
+        List<Artifact> savedArtifacts = artifactRepository.saveAll(artifacts);
+        savedArtifacts.forEach(savedArtifact -> {
+            indexAfterCommit(savedArtifact);
+            notFoundCache.forget("artifact", savedArtifact.getId());
+        });
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT,
+                savedArtifacts.stream().map(Artifact::getId).toList());
+        catalogVersion.increment();
+        return savedArtifacts;
     }
 
     public Artifact update(Integer artifactId, Artifact newArtifact) {
@@ -39,8 +218,93 @@ public class ArtifactService {
                     artifact.withName(newArtifact.getName())
                             .withDescription(newArtifact.getDescription())
                             .withImageUrl(newArtifact.getImageUrl());
-                    return artifactRepository.save(artifact);
+                    Artifact updatedArtifact = artifactRepository.save(artifact);
+                    indexAfterCommit(updatedArtifact);
+                    catalogCache.evictArtifact(artifactId);
+                    changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, artifactId);
+                    catalogVersion.increment();
+                    return updatedArtifact;
                 })
                 .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
     }
+
+    public Artifact updateImageUrls(Integer artifactId, String imageUrl, String thumbnailUrl) {
+        Artifact artifact = findById(artifactId);
+        artifact.setImageUrl(imageUrl);
+        artifact.setThumbnailUrl(thumbnailUrl);
+        catalogCache.evictArtifact(artifactId);
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, artifactId);
+        catalogVersion.increment();
+        return artifact;
+    }
+
+    /**
+     * Applies the update to every selected artifact with a single bulk UPDATE and returns the number of updated rows.
+     * The selected rows are read once up front, the search index and the caches are refreshed from that.
+     */
+    public int updateAll(ArtifactBulkUpdate bulkUpdate) {
+        bulkUpdate.validate();
+        List<ArtifactRef> refs = findRefs(bulkUpdate.where());
+        if (refs.isEmpty()) {
+            return 0;
+        }
+        List<Integer> ids = refs.stream().map(ArtifactRef::id).toList();
+        int updated = artifactRepository.updateAllByIds(ids, bulkUpdate.description(), bulkUpdate.imageUrl());
+        if (bulkUpdate.description() != null) {
+            AfterCommit.run(() -> refs.forEach(ref -> artifactSearchIndex.index(ref.id(), ref.name(), bulkUpdate.description())));
+        }
+        catalogCache.evictArtifacts(ids);
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, ids);
+        catalogVersion.increment();
+        return updated;
+    }
+
+    /**
+     * Deletes every selected artifact with a single bulk DELETE and returns the number of deleted rows.
+     */
+    public int deleteAll(ArtifactSelection selection) {
+        List<ArtifactRef> refs = findRefs(selection);
+        if (refs.isEmpty()) {
+            return 0;
+        }
+        List<Integer> ids = refs.stream().map(ArtifactRef::id).toList();
+        Map<Integer, Long> deletedByOwner = refs.stream()
+                .map(ArtifactRef::ownerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(ownerId -> ownerId, Collectors.counting()));
+        Set<Integer> ownerIds = deletedByOwner.keySet();
+        int deleted = artifactRepository.deleteAllByIds(ids);
+        if (!ownerIds.isEmpty()) {
+            // The owners' number of artifacts changes; the artifacts they keep read it from the owner.
+            wizardRepository.incrementVersions(ownerIds);
+            catalogCache.evictWizards(ownerIds);
+            changeService.record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, ownerIds);
+        }
+        AfterCommit.run(() -> {
+            ids.forEach(artifactId -> {
+                artifactSearchIndex.remove(artifactId);
+                imageBlobStore.remove(artifactId);
+            });
+            deletedByOwner.forEach((ownerId, count) -> wizardLeaderboard.adjust(ownerId, -count.intValue()));
+        });
+        catalogCache.evictArtifacts(ids);
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, ids);
+        catalogVersion.increment();
+        return deleted;
+    }
+
+    private List<ArtifactRef> findRefs(ArtifactSelection selection) {
+        selection.validate();
+        return selection.byIds()
+                ? artifactRepository.findRefsByIds(selection.ids())
+                : artifactRepository.findRefsByFilter(selection.ownerId(), selection.nameContains());
+    }
+
+    private void indexAfterCommit(Artifact artifact) {
+        // Capture the values now, the entity may be detached or changed by the time the transaction commits.
+        Integer id = artifact.getId();
+        String name = artifact.getName();
+        String description = artifact.getDescription();
+        AfterCommit.run(() -> artifactSearchIndex.index(id, name, description));
+    }
 }
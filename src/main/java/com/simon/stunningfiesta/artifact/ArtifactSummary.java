@@ -0,0 +1,35 @@
+package com.simon.stunningfiesta.artifact;
+
+import com.simon.stunningfiesta.wizard.WizardSummary;
+
+/**
+ * Flat read model of an artifact with its owner's name and artifact count, filled by a single query.
+ * Owner fields are null when the artifact has no owner.
+ */
+public record ArtifactSummary(Integer id,
+                              String name,
+                              String description,
+                              String imageUrl,
+                              String thumbnailUrl,
+                              Integer version,
+                              Integer ownerId,
+                              String ownerName,
+                              Long ownerNumberOfArtifacts,
+                              Integer ownerVersion) {
+
+    /**
+     * Returns this summary with the owner's name, count and version taken from {@code owner}, which is read more
+     * recently than a cached summary. Without an owner summary (e.g. the owner is being purged) it stays as it is.
+     */
+    public ArtifactSummary withOwner(WizardSummary owner) {
+        if (owner == null || !owner.id().equals(ownerId)) {
+            return this;
+        }
+        return new ArtifactSummary(id, name, description, imageUrl, thumbnailUrl, version,
+                ownerId, owner.name(), owner.numberOfArtifacts(), owner.version());
+    }
+
+    public String etag() {
+        return new ArtifactVersion(id, version, ownerId, ownerVersion).etag();
+    }
+}
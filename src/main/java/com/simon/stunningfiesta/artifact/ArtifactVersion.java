@@ -0,0 +1,15 @@
+package com.simon.stunningfiesta.artifact;
+
+/**
+ * Version columns an artifact representation depends on, the owner is part of it because ArtifactDto embeds the owner.
+ */
+public record ArtifactVersion(Integer id,
+                              Integer version,
+                              Integer ownerId,
+                              Integer ownerVersion) {
+
+    public String etag() {
+        return "\"artifact-" + id + "-" + version
+                + (ownerId == null ? "" : "-wizard-" + ownerId + "-" + ownerVersion) + "\"";
+    }
+}
@@ -0,0 +1,22 @@
+package com.simon.stunningfiesta.artifact.converts;
+
+import com.simon.stunningfiesta.artifact.ArtifactDto;
+import com.simon.stunningfiesta.artifact.ArtifactSummary;
+import com.simon.stunningfiesta.wizard.WizardDto;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ArtifactSummaryToArtifactDtoConverter implements Converter<ArtifactSummary, ArtifactDto> {
+    @Override
+    public ArtifactDto convert(ArtifactSummary source) {
+        return new ArtifactDto(source.id(),
+                source.name(),
+                source.description(),
+                source.imageUrl(),
+                source.ownerId() == null
+                        ? null
+                        : new WizardDto(source.ownerId(), source.ownerName(), source.ownerNumberOfArtifacts().intValue()),
+                source.thumbnailUrl());
+    }
+}
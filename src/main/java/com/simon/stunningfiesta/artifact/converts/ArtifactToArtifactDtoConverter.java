@@ -22,6 +22,7 @@ public class ArtifactToArtifactDtoConverter implements Converter<Artifact, Artif
                 source.getImageUrl(),
                 source.getOwner() == null
                         ? null
-                        : wizardToWizardDtoConverter.convert(source.getOwner()));
+                        : wizardToWizardDtoConverter.convert(source.getOwner()),
+                source.getThumbnailUrl());
     }
 }
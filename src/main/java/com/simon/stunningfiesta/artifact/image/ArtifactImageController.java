@@ -0,0 +1,125 @@
+package com.simon.stunningfiesta.artifact.image;
+
+import com.simon.stunningfiesta.artifact.Artifact;
+import com.simon.stunningfiesta.artifact.converts.ArtifactToArtifactDtoConverter;
+import com.simon.stunningfiesta.system.Result;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("${api.endpoint.base-url}/artifacts")
+public class ArtifactImageController {
+    // Versioned URLs (?v=<content hash>) never change content, anything else has to be revalidated with the ETag.
+    private static final String CACHE_FOREVER = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+    private static final String CACHE_REVALIDATE = CacheControl.noCache().cachePublic().getHeaderValue();
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ArtifactImageService artifactImageService;
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
+
+    public ArtifactImageController(ArtifactImageService artifactImageService,
+                                   ImageBlobStore imageBlobStore,
+                                   ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter) {
+        this.artifactImageService = artifactImageService;
+        this.imageBlobStore = imageBlobStore;
+        this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
+    }
+
+    @PutMapping(value = "/{artifactId}/image",
+            consumes = {MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_GIF_VALUE})
+    public Result uploadImage(@PathVariable Integer artifactId,
+                              @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                              InputStream inputStream) throws IOException {
+        byte[] image = inputStream.readNBytes(ArtifactImageService.MAX_IMAGE_SIZE + 1);
+        Artifact artifact = artifactImageService.store(artifactId,
+                contentType.getType() + "/" + contentType.getSubtype(), image);
+        return Result.success("Upload Image Success")
+                .withData(artifactToArtifactDtoConverter.convert(artifact));
+    }
+
+    @GetMapping("/{artifactId}/image")
+    public void downloadImage(@PathVariable Integer artifactId,
+                              @RequestParam(name = "v", required = false) String version,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        serve(artifactImageService.find(artifactId, ImageVariant.FULL), version, request, response);
+    }
+
+    @GetMapping("/{artifactId}/thumbnail")
+    public void downloadThumbnail(@PathVariable Integer artifactId,
+                                  @RequestParam(name = "v", required = false) String version,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        serve(artifactImageService.find(artifactId, ImageVariant.THUMBNAIL), version, request, response);
+    }
+
+    private void serve(ImageBlob blob, String version, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String etag = "\"" + blob.etag() + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, blob.etag().equals(version) ? CACHE_FOREVER : CACHE_REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+
+        long start = 0;
+        long length = blob.length();
+        String range = request.getHeader(HttpHeaders.RANGE);
+        // If-Range: a client holding an older version gets the whole new image instead of a mismatched slice.
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(blob.length());
+                    if (start >= blob.length()) {
+                        throw new IllegalArgumentException("Range starts after the end of the image");
+                    }
+                    length = ranges.get(0).getRangeEnd(blob.length()) - start + 1;
+                }
+            } catch (IllegalArgumentException ex) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + blob.length());
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            // Several ranges are answered with the whole image, which RFC 9110 allows.
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + length - 1) + "/" + blob.length());
+            }
+        }
+
+        response.setContentType(blob.contentType());
+        response.setContentLengthLong(length);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file region itself with sendfile once the request completes.
+            request.setAttribute(SENDFILE_FILENAME, imageBlobStore.getPath().toRealPath().toString());
+            request.setAttribute(SENDFILE_START, blob.offset() + start);
+            request.setAttribute(SENDFILE_END, blob.offset() + start + length);
+            return;
+        }
+        imageBlobStore.transferTo(blob, start, length, Channels.newChannel(response.getOutputStream()));
+    }
+}
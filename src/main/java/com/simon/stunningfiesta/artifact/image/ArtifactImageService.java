@@ -0,0 +1,134 @@
+package com.simon.stunningfiesta.artifact.image;
+
+import com.simon.stunningfiesta.artifact.Artifact;
+import com.simon.stunningfiesta.artifact.ArtifactService;
+import com.simon.stunningfiesta.system.AfterCommit;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+@Service
+@Transactional
+public class ArtifactImageService {
+    public static final int MAX_IMAGE_SIZE = 5 * 1024 * 1024;
+
+    static final int THUMBNAIL_SIZE = 200;
+
+    private final ArtifactService artifactService;
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final String artifactsUrl;
+
+    private final long maxPixels;
+
+    public ArtifactImageService(ArtifactService artifactService,
+                                ImageBlobStore imageBlobStore,
+                                @Value("${api.endpoint.base-url}/artifacts") String artifactsUrl,
+                                @Value("${api.images.max-pixels:25000000}") long maxPixels) {
+        this.artifactService = artifactService;
+        this.imageBlobStore = imageBlobStore;
+        this.artifactsUrl = artifactsUrl;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Stores the image and a thumbnail of it, then points the artifact's imageUrl and thumbnailUrl at them.
+     * The URLs carry the content hash, so they change with every upload and can be cached for good.
+     */
+    public Artifact store(Integer artifactId, String contentType, byte[] image) {
+        if (image.length == 0 || image.length > MAX_IMAGE_SIZE) {
+            throw new BadRequestException("Image must be between 1 byte and " + MAX_IMAGE_SIZE + " bytes.");
+        }
+        Thumbnail thumbnail = thumbnail(image, contentType, maxPixels);
+        artifactService.findById(artifactId);
+        // The images are written before the new URLs commit, so the URLs never point at nothing, and a failed
+        // write rolls the URLs back. A rollback puts the previous images back.
+        write(artifactId, ImageVariant.FULL, contentType, image);
+        write(artifactId, ImageVariant.THUMBNAIL, thumbnail.contentType(), thumbnail.data());
+        return artifactService.updateImageUrls(artifactId,
+                artifactsUrl + "/" + artifactId + "/image?v=" + ImageBlobStore.etag(image),
+                artifactsUrl + "/" + artifactId + "/thumbnail?v=" + ImageBlobStore.etag(thumbnail.data()));
+    }
+
+    private void write(Integer artifactId, ImageVariant variant, String contentType, byte[] data) {
+        ImageBlob previous = imageBlobStore.find(artifactId, variant).orElse(null);
+        ImageBlob appended;
+        try {
+            appended = imageBlobStore.append(artifactId, variant, contentType, data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        imageBlobStore.publish(appended);
+        AfterCommit.onRollback(() -> imageBlobStore.revert(appended, previous));
+    }
+
+    public ImageBlob find(Integer artifactId, ImageVariant variant) {
+        return imageBlobStore.find(artifactId, variant)
+                .orElseThrow(() -> new ObjectNotFoundException("image", artifactId));
+    }
+
+    /**
+     * Scales the image down to fit in THUMBNAIL_SIZE pixels, JPEG stays JPEG and everything else becomes PNG.
+     * Images of more than maxPixels pixels are rejected before they are decoded.
+     */
+    static Thumbnail thumbnail(byte[] image, String contentType, long maxPixels) {
+        try {
+            BufferedImage source = decode(image, contentType, maxPixels);
+            double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(source.getWidth(), source.getHeight()));
+            int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+            boolean jpeg = MediaType.IMAGE_JPEG_VALUE.equals(contentType);
+
+            BufferedImage scaled = new BufferedImage(width, height, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+            graphics.dispose();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(scaled, jpeg ? "jpeg" : "png", out);
+            return new Thumbnail(out.toByteArray(), jpeg ? MediaType.IMAGE_JPEG_VALUE : MediaType.IMAGE_PNG_VALUE);
+        } catch (IOException ex) {
+            throw new BadRequestException("Image could not be decoded as " + contentType + ".");
+        }
+    }
+
+    private static BufferedImage decode(byte[] image, String contentType, long maxPixels) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new BadRequestException("Image could not be decoded as " + contentType + ".");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Read from the header alone: a few KB can declare a canvas whose pixels don't fit in the heap.
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new BadRequestException("Image must have at most " + maxPixels + " pixels.");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    record Thumbnail(byte[] data, String contentType) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.simon.stunningfiesta.artifact.image;
+
+/**
+ * Where an image lives in the blob file. The etag is a hash of the content, so it also versions the image URL.
+ */
+public record ImageBlob(Integer artifactId,
+                        ImageVariant variant,
+                        String contentType,
+                        long offset,
+                        long length,
+                        String etag) {
+}
@@ -0,0 +1,247 @@
+package com.simon.stunningfiesta.artifact.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only file holding the artifact images. Every record is a small header followed by the image bytes.
+ * Uploading again appends a new record and deleting appends a tombstone, nothing is rewritten in place,
+ * so readers can serve a blob straight from the file while writers append.
+ * The offsets of the live records are kept in memory and rebuilt by scanning the file on startup.
+ * Without api.images.path a temporary file is used and removed on shutdown, like the in-memory database.
+ */
+@Component
+public class ImageBlobStore implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(ImageBlobStore.class);
+
+    private static final int MAGIC = 0x53464931;
+
+    // magic, artifact id, variant (-1 is a tombstone), content type length, etag length, data length
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + 3 + Long.BYTES;
+
+    private static final byte TOMBSTONE = -1;
+
+    private final Path path;
+
+    private final boolean temporary;
+
+    private final FileChannel channel;
+
+    private final Map<String, ImageBlob> blobs = new ConcurrentHashMap<>();
+
+    public ImageBlobStore(@Value("${api.images.path:}") String path) throws IOException {
+        this.temporary = path.isBlank();
+        if (temporary) {
+            this.path = Files.createTempFile("stunning-fiesta-images", ".blob");
+        } else {
+            this.path = Path.of(path).toAbsolutePath();
+            Files.createDirectories(this.path.getParent());
+        }
+        this.channel = FileChannel.open(this.path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Optional<ImageBlob> find(Integer artifactId, ImageVariant variant) {
+        return Optional.ofNullable(blobs.get(key(artifactId, variant)));
+    }
+
+    /**
+     * The etag append gives the data, known before anything is written.
+     */
+    public static String etag(byte[] data) {
+        return sha256(data);
+    }
+
+    /**
+     * Appends the image to the file and returns where it was written. The blob is not visible to find until
+     * it is published.
+     */
+    public synchronized ImageBlob append(Integer artifactId, ImageVariant variant, String contentType, byte[] data)
+            throws IOException {
+        String etag = etag(data);
+        byte[] contentTypeBytes = contentType.getBytes(StandardCharsets.US_ASCII);
+        byte[] etagBytes = etag.getBytes(StandardCharsets.US_ASCII);
+        long position = channel.size();
+        ByteBuffer header = header(artifactId, (byte) variant.ordinal(), contentTypeBytes, etagBytes, data.length);
+        long offset = position + header.remaining();
+        writeFully(header, position);
+        writeFully(ByteBuffer.wrap(data), offset);
+        channel.force(false);
+        return new ImageBlob(artifactId, variant, contentType, offset, data.length, etag);
+    }
+
+    public void publish(ImageBlob blob) {
+        blobs.put(key(blob.artifactId(), blob.variant()), blob);
+    }
+
+    /**
+     * Undoes an upload whose transaction rolled back: publishes the previous blob of the variant again, or none if
+     * there was none, provided the appended blob is still the published one (a later upload or a deletion wins).
+     * A record is appended as well, so that the file replays to the same state.
+     */
+    public synchronized void revert(ImageBlob appended, ImageBlob previous) {
+        Integer artifactId = appended.artifactId();
+        if (!appended.equals(blobs.get(key(artifactId, appended.variant())))) {
+            return;
+        }
+        try {
+            if (previous != null) {
+                ByteBuffer data = ByteBuffer.allocate((int) previous.length());
+                readFully(data, previous.offset());
+                publish(append(artifactId, previous.variant(), previous.contentType(), data.array()));
+                return;
+            }
+            blobs.remove(key(artifactId, appended.variant()));
+            // A tombstone drops every variant, it is only written once none is left.
+            if (Arrays.stream(ImageVariant.values()).noneMatch(variant -> blobs.containsKey(key(artifactId, variant)))) {
+                writeFully(header(artifactId, TOMBSTONE, new byte[0], new byte[0], 0), channel.size());
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Called after the artifact's deletion committed, hence unchecked.
+    public synchronized void remove(Integer artifactId) {
+        boolean removed = blobs.remove(key(artifactId, ImageVariant.FULL)) != null;
+        removed |= blobs.remove(key(artifactId, ImageVariant.THUMBNAIL)) != null;
+        if (!removed) {
+            return;
+        }
+        try {
+            writeFully(header(artifactId, TOMBSTONE, new byte[0], new byte[0], 0), channel.size());
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Copies count bytes of the blob, starting at start, to the target with FileChannel.transferTo,
+     * which lets the kernel move the bytes without copying them through the heap when the target allows it.
+     */
+    public void transferTo(ImageBlob blob, long start, long count, WritableByteChannel target) throws IOException {
+        long position = blob.offset() + start;
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        channel.close();
+        if (temporary) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                break;
+            }
+            int artifactId = header.getInt();
+            byte variant = header.get();
+            ByteBuffer contentType = ByteBuffer.allocate(Byte.toUnsignedInt(header.get()));
+            ByteBuffer etag = ByteBuffer.allocate(Byte.toUnsignedInt(header.get()));
+            long length = header.getLong();
+            long offset = position + HEADER_SIZE + contentType.capacity() + etag.capacity();
+            if (offset + length > size) {
+                break;
+            }
+            readFully(contentType, position + HEADER_SIZE);
+            readFully(etag, position + HEADER_SIZE + contentType.capacity());
+            if (variant == TOMBSTONE) {
+                blobs.remove(key(artifactId, ImageVariant.FULL));
+                blobs.remove(key(artifactId, ImageVariant.THUMBNAIL));
+            } else {
+                publish(new ImageBlob(artifactId, ImageVariant.values()[variant],
+                        new String(contentType.array(), StandardCharsets.US_ASCII), offset, length,
+                        new String(etag.array(), StandardCharsets.US_ASCII)));
+            }
+            position = offset + length;
+        }
+        if (position < size) {
+            // A record cut short by a crash, drop it so the next append starts on a record boundary.
+            log.warn("Truncating image store {} from {} to {} bytes", path, size, position);
+            channel.truncate(position);
+        }
+        log.debug("Image store {} loaded with {} images", path, blobs.size());
+    }
+
+    private static ByteBuffer header(Integer artifactId, byte variant, byte[] contentType, byte[] etag, long length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + contentType.length + etag.length)
+                .putInt(MAGIC)
+                .putInt(artifactId)
+                .put(variant)
+                .put((byte) contentType.length)
+                .put((byte) etag.length)
+                .putLong(length)
+                .put(contentType)
+                .put(etag);
+        return header.flip();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of image store " + path);
+            }
+            position += read;
+        }
+    }
+
+    private static String key(Integer artifactId, ImageVariant variant) {
+        return artifactId + ":" + variant;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data), 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.simon.stunningfiesta.artifact.image;
+
+public enum ImageVariant {
+    FULL,
+    THUMBNAIL
+}
@@ -0,0 +1,7 @@
+package com.simon.stunningfiesta.artifact.search;
+
+public record ArtifactSearchHit(Integer id,
+                                String name,
+                                String description,
+                                double score) {
+}
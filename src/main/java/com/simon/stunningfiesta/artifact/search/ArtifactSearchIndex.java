@@ -0,0 +1,163 @@
+package com.simon.stunningfiesta.artifact.search;
+
+import com.simon.stunningfiesta.artifact.Artifact;
+import com.simon.stunningfiesta.artifact.ArtifactRef;
+import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over artifact names and descriptions, ranked with BM25.
+ * It is built once at startup and then kept up to date by ArtifactService, so searching never touches the database.
+ */
+@Component
+public class ArtifactSearchIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactSearchIndex.class);
+
+    // Standard BM25 parameters.
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A term in the name counts as much as this many occurrences in the description.
+    private static final int NAME_WEIGHT = 2;
+
+    // Worst hit first: lower score, then higher id.
+    private static final Comparator<ArtifactSearchHit> HIT_ORDER = Comparator
+            .comparingDouble(ArtifactSearchHit::score)
+            .thenComparing(ArtifactSearchHit::id, Comparator.reverseOrder());
+
+    private final ArtifactRepository artifactRepository;
+
+    // term -> (artifact id -> term frequency)
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+
+    private final Map<Integer, IndexedArtifact> artifacts = new HashMap<>();
+
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ArtifactSearchIndex(ArtifactRepository artifactRepository) {
+        this.artifactRepository = artifactRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        // Refs are projections, the persistence context stays empty however many artifacts there are.
+        try (Stream<ArtifactRef> allArtifacts = artifactRepository.streamAllRefs()) {
+            allArtifacts.forEach(artifact -> index(artifact.id(), artifact.name(), artifact.description()));
+        }
+        LOGGER.debug("Artifact search index built with {} artifacts and {} terms", artifacts.size(), postings.size());
+    }
+
+    public void index(Artifact artifact) {
+        index(artifact.getId(), artifact.getName(), artifact.getDescription());
+    }
+
+    public void index(Integer id, String name, String description) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        tokenize(name).forEach(term -> termFrequencies.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(description).forEach(term -> termFrequencies.merge(term, 1, Integer::sum));
+        int length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(id);
+            termFrequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, frequency));
+            artifacts.put(id, new IndexedArtifact(id, name, description, length, termFrequencies.keySet()));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the best {@code limit} artifacts for the query, best first.
+     * Only the current top K candidates are kept in a min-heap, so ranking costs O(n log k) instead of sorting every match.
+     */
+    public List<ArtifactSearchHit> search(String query, int limit) {
+        Set<String> terms = new HashSet<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty() || artifacts.isEmpty()) {
+                return List.of();
+            }
+            int documentCount = artifacts.size();
+            double averageLength = (double) totalLength / documentCount;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Integer, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                termPostings.forEach((id, frequency) -> {
+                    double normalizedLength = 1 - B + B * artifacts.get(id).length() / averageLength;
+                    double score = idf * frequency * (K1 + 1) / (frequency + K1 * normalizedLength);
+                    scores.merge(id, score, Double::sum);
+                });
+            }
+
+            PriorityQueue<ArtifactSearchHit> topHits = new PriorityQueue<>(limit + 1, HIT_ORDER);
+            scores.forEach((id, score) -> {
+                IndexedArtifact artifact = artifacts.get(id);
+                topHits.offer(new ArtifactSearchHit(id, artifact.name(), artifact.description(), score));
+                if (topHits.size() > limit) {
+                    topHits.poll();
+                }
+            });
+            List<ArtifactSearchHit> hits = new ArrayList<>(topHits);
+            hits.sort(HIT_ORDER.reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeUnderLock(Integer id) {
+        IndexedArtifact removed = artifacts.remove(id);
+        if (removed == null) {
+            return;
+        }
+        totalLength -= removed.length();
+        for (String term : removed.terms()) {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            termPostings.remove(id);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private record IndexedArtifact(Integer id, String name, String description, int length, Set<String> terms) {
+    }
+}
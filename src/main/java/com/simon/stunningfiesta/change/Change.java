@@ -0,0 +1,79 @@
+package com.simon.stunningfiesta.change;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * One entry of the catalog change log, written in the same transaction as the change it records.
+ */
+@Entity
+@Table(name = "change_log")
+public class Change implements Serializable, Persistable<Long> {
+    // Assigned by ChangeService, a single node hands them out in increasing order.
+    @Id
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeEntityType entityType;
+
+    private Integer entityId;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeOperation operation;
+
+    private Instant changedAt;
+
+    // The sequence number is assigned up front, this tells Spring Data to persist rather than merge.
+    @Transient
+    private boolean isNew = true;
+
+    public Change() {
+    }
+
+    public Change(Long seq, ChangeEntityType entityType, Integer entityId, ChangeOperation operation, Instant changedAt) {
+        this.seq = seq;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.changedAt = changedAt;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    @Override
+    public Long getId() {
+        return seq;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    public ChangeEntityType getEntityType() {
+        return entityType;
+    }
+
+    public Integer getEntityId() {
+        return entityId;
+    }
+
+    public ChangeOperation getOperation() {
+        return operation;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+}
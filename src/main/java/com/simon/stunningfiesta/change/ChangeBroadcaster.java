@@ -0,0 +1,201 @@
+package com.simon.stunningfiesta.change;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed changes to Server-Sent Events subscribers.
+ * <p>
+ * A single thread does the work: each round reads the log once from the oldest subscriber cursor and hands every
+ * subscriber the entries past its own cursor, so the number of subscribers doesn't multiply the queries.
+ * Commits arriving while a round is pending are folded into it.
+ * <p>
+ * That thread never writes to a connection: it queues the entries on each subscriber, up to
+ * api.changes.stream.max-pending of them, and a pool of api.changes.stream.senders threads writes them out. A
+ * subscriber whose queue overflows is disconnected, it resumes from its Last-Event-ID like after any other drop.
+ */
+@Component
+public class ChangeBroadcaster implements DisposableBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeBroadcaster.class);
+
+    // Clients reconnect with Last-Event-ID, so a bounded connection costs them nothing.
+    private static final long TIMEOUT = Duration.ofMinutes(30).toMillis();
+
+    private final ChangeService changeService;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-broadcaster");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService senders;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final int maxPending;
+
+    public ChangeBroadcaster(ChangeService changeService,
+                             @Value("${api.changes.stream.senders:4}") int senders,
+                             @Value("${api.changes.stream.max-pending:1000}") int maxPending) {
+        this.changeService = changeService;
+        this.senders = Executors.newFixedThreadPool(senders, runnable -> {
+            Thread thread = new Thread(runnable, "change-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = maxPending;
+    }
+
+    public SseEmitter subscribe(long since) {
+        changeService.checkCursor(since);
+        SseEmitter emitter = new SseEmitter(TIMEOUT);
+        Subscriber subscriber = new Subscriber(emitter, since);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(throwable -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // Replay what the subscriber missed.
+        schedule();
+        return emitter;
+    }
+
+    @EventListener
+    public void onChangesCommitted(ChangesCommitted event) {
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::broadcast);
+        }
+    }
+
+    private void broadcast() {
+        scheduled.set(false);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            // Pruned while they were behind, they get refused when they reconnect and read the catalog again.
+            subscribers.stream()
+                    .filter(subscriber -> changeService.isPruned(subscriber.cursor))
+                    .forEach(Subscriber::drop);
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            long since = subscribers.stream().mapToLong(subscriber -> subscriber.cursor).min().orElseThrow();
+            ChangePage page;
+            do {
+                page = changeService.findSince(since, ChangeService.MAX_LIMIT);
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(page.changes());
+                }
+                since = page.next();
+            } while (page.hasMore());
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Broadcasting changes failed, subscribers will catch up on the next commit.", ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<ChangeDto> pending = new ArrayBlockingQueue<>(maxPending);
+
+        // Set while a sender drains the queue, so that one sender at a time writes to the emitter.
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile boolean dropped;
+
+        // Only touched by the senders, one at a time.
+        private boolean closed;
+
+        // The last entry queued. Only touched by the broadcasting thread (and before the subscriber is published).
+        private long cursor;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        private void offer(List<ChangeDto> changes) {
+            for (ChangeDto change : changes) {
+                if (change.seq() > cursor) {
+                    if (!pending.offer(change)) {
+                        LOGGER.debug("Dropping a subscriber more than {} changes behind", maxPending);
+                        drop();
+                        return;
+                    }
+                    cursor = change.seq();
+                }
+            }
+            drain();
+        }
+
+        // The emitter is completed by the sender, completing it here would wait for a write in progress.
+        private void drop() {
+            subscribers.remove(this);
+            dropped = true;
+            drain();
+        }
+
+        private void drain() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::sendPending);
+            }
+        }
+
+        private void sendPending() {
+            try {
+                ChangeDto change;
+                while (!closed && !dropped && (change = pending.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.seq()))
+                            .name("change")
+                            .data(change));
+                }
+                if (!closed && dropped) {
+                    closed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // The client went away, it will resume from its Last-Event-ID.
+                subscribers.remove(this);
+                dropped = true;
+                closed = true;
+                emitter.completeWithError(ex);
+            } finally {
+                draining.set(false);
+            }
+            // Entries queued after the last poll, before draining was cleared.
+            if (!closed && (dropped || !pending.isEmpty())) {
+                drain();
+            }
+        }
+    }
+}
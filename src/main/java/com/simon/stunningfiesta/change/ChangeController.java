@@ -0,0 +1,37 @@
+package com.simon.stunningfiesta.change;
+
+import com.simon.stunningfiesta.system.Result;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("${api.endpoint.base-url}/changes")
+public class ChangeController {
+    private final ChangeService changeService;
+
+    private final ChangeBroadcaster changeBroadcaster;
+
+    public ChangeController(ChangeService changeService, ChangeBroadcaster changeBroadcaster) {
+        this.changeService = changeService;
+        this.changeBroadcaster = changeBroadcaster;
+    }
+
+    @GetMapping
+    public Result findChanges(@RequestParam(required = false) Long since,
+                              @RequestParam(required = false) Integer limit) {
+        return Result.success("Find Changes Success")
+                .withData(changeService.findSince(since, ChangeService.normalizeLimit(limit)));
+    }
+
+    /**
+     * Streams changes after {@code since} as they commit. A reconnecting EventSource sends Last-Event-ID,
+     * which takes precedence; with neither the stream starts at the current head.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        Long from = lastEventId != null ? lastEventId : since;
+        return changeBroadcaster.subscribe(from != null ? from : changeService.head());
+    }
+}
@@ -0,0 +1,10 @@
+package com.simon.stunningfiesta.change;
+
+import java.time.Instant;
+
+public record ChangeDto(Long seq,
+                        ChangeEntityType type,
+                        Integer id,
+                        ChangeOperation operation,
+                        Instant changedAt) {
+}
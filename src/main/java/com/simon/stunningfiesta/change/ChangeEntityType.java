@@ -0,0 +1,5 @@
+package com.simon.stunningfiesta.change;
+
+public enum ChangeEntityType {
+    ARTIFACT, WIZARD
+}
@@ -0,0 +1,64 @@
+package com.simon.stunningfiesta.change;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes change log entries older than api.changes.retention, every api.changes.prune-interval on a single
+ * background thread. Clients that stay away longer than the retention read the catalog again.
+ */
+@Component
+public class ChangeLogPruner implements DisposableBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeLogPruner.class);
+
+    private final ChangeService changeService;
+
+    private final Duration retention;
+
+    private final Duration interval;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-log-pruner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChangeLogPruner(ChangeService changeService,
+                           @Value("${api.changes.retention:7d}") Duration retention,
+                           @Value("${api.changes.prune-interval:1h}") Duration interval) {
+        this.changeService = changeService;
+        this.retention = retention;
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::prune, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void prune() {
+        try {
+            int deleted = changeService.prune(Instant.now().minus(retention));
+            LOGGER.debug("Pruned {} change log entries", deleted);
+        } catch (RuntimeException ex) {
+            // Thrown out of the task it would cancel the schedule.
+            LOGGER.warn("Pruning the change log failed, it is tried again in {}.", interval, ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,8 @@
+package com.simon.stunningfiesta.change;
+
+/**
+ * UPSERT means the entity was created or changed and should be (re)fetched, DELETE that it is gone.
+ */
+public enum ChangeOperation {
+    UPSERT, DELETE
+}
@@ -0,0 +1,10 @@
+package com.simon.stunningfiesta.change;
+
+import java.util.List;
+
+/**
+ * A batch of changes in sequence order. {@code next} is the value to pass as {@code since} for the following batch,
+ * {@code hasMore} tells whether that batch can be asked for right away.
+ */
+public record ChangePage(List<ChangeDto> changes, long next, boolean hasMore) {
+}
@@ -0,0 +1,29 @@
+package com.simon.stunningfiesta.change;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ChangeRepository extends JpaRepository<Change, Long> {
+    @Query("select new com.simon.stunningfiesta.change.ChangeDto(c.seq, c.entityType, c.entityId, c.operation, c.changedAt) "
+            + "from Change c where c.seq > :since and c.seq <= :upTo order by c.seq")
+    List<ChangeDto> findBetween(long since, long upTo, Pageable pageable);
+
+    @Query("select max(c.seq) from Change c")
+    Optional<Long> findMaxSeq();
+
+    @Query("select min(c.seq) from Change c")
+    Optional<Long> findMinSeq();
+
+    @Query("select max(c.seq) from Change c where c.changedAt < :before")
+    Optional<Long> findMaxSeqBefore(Instant before);
+
+    @Modifying
+    @Query("delete from Change c where c.seq < :seq")
+    int deleteBefore(long seq);
+}
@@ -0,0 +1,168 @@
+package com.simon.stunningfiesta.change;
+
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Ordered log of every change to artifacts and wizards, so that clients mirroring the catalog only fetch the delta.
+ * <p>
+ * Entries are written in the transaction of the change itself, so the log never disagrees with the tables.
+ * Sequence numbers are handed out in increasing order but transactions may commit out of that order: readers only
+ * ever see entries up to the highest sequence number below which every transaction has completed, otherwise a
+ * client could move its cursor past an entry that commits later. Entries older than api.changes.retention are
+ * pruned, a cursor that fell behind them is refused and the client reads the catalog again.
+ */
+@Service
+@Transactional
+public class ChangeService {
+    public static final int DEFAULT_LIMIT = 100;
+
+    public static final int MAX_LIMIT = 1000;
+
+    private final ChangeRepository changeRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong nextSeq;
+
+    // Completed ranges of sequence numbers (first to last) not yet joined to the readable prefix.
+    private final ConcurrentSkipListMap<Long, Long> completed = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong readableUpTo;
+
+    private final AtomicLong prunedUpTo;
+
+    public ChangeService(ChangeRepository changeRepository, ApplicationEventPublisher eventPublisher) {
+        this.changeRepository = changeRepository;
+        this.eventPublisher = eventPublisher;
+        long maxSeq = changeRepository.findMaxSeq().orElse(0L);
+        this.nextSeq = new AtomicLong(maxSeq + 1);
+        this.readableUpTo = new AtomicLong(maxSeq);
+        this.prunedUpTo = new AtomicLong(changeRepository.findMinSeq().map(seq -> seq - 1).orElse(0L));
+    }
+
+    public void record(ChangeEntityType type, ChangeOperation operation, Integer id) {
+        record(type, operation, List.of(id));
+    }
+
+    public void record(ChangeEntityType type, ChangeOperation operation, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<Integer> entityIds = List.copyOf(ids);
+        long first = nextSeq.getAndAdd(entityIds.size());
+        long last = first + entityIds.size() - 1;
+        // Registered before anything can fail, a rolled back range must complete all the same.
+        whenCompleted(first, last);
+        changeRepository.saveAll(IntStream.range(0, entityIds.size())
+                .mapToObj(i -> new Change(first + i, type, entityIds.get(i), operation, now))
+                .toList());
+    }
+
+    /**
+     * Returns up to {@code limit} changes after {@code since}. Without {@code since} it returns no changes, only the
+     * current head: take it before a full read of the catalog, then follow the log from there.
+     */
+    public ChangePage findSince(Long since, int limit) {
+        long upTo = readableUpTo();
+        if (since == null) {
+            return new ChangePage(List.of(), upTo, false);
+        }
+        checkCursor(since);
+        List<ChangeDto> changes = changeRepository.findBetween(since, upTo, PageRequest.ofSize(limit));
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).seq();
+        return new ChangePage(changes, next, changes.size() == limit);
+    }
+
+    /**
+     * The sequence number up to which the log can be read.
+     */
+    public long head() {
+        return readableUpTo();
+    }
+
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null || limit < 1) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Refuses a cursor the log can't be followed from: a negative one, or one whose next entries were pruned.
+     */
+    public void checkCursor(long since) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative.");
+        }
+        if (since < prunedUpTo.get()) {
+            throw new BadRequestException("since is older than the retained change log, read the catalog again.");
+        }
+    }
+
+    /**
+     * Whether the entries after {@code since} were pruned.
+     */
+    public boolean isPruned(long since) {
+        return since < prunedUpTo.get();
+    }
+
+    /**
+     * Deletes the entries recorded before {@code before}, except the newest of them so that the sequence numbers
+     * carry on from it after a restart, and never past what readers can see yet. Returns how many entries it deleted.
+     */
+    public int prune(Instant before) {
+        return changeRepository.findMaxSeqBefore(before)
+                .map(seq -> {
+                    long keep = Math.min(seq, readableUpTo());
+                    int deleted = changeRepository.deleteBefore(keep);
+                    prunedUpTo.accumulateAndGet(keep - 1, Math::max);
+                    return deleted;
+                })
+                .orElse(0);
+    }
+
+    private long readableUpTo() {
+        return readableUpTo.get();
+    }
+
+    private void whenCompleted(long first, long last) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(first, last);
+                if (status == STATUS_COMMITTED) {
+                    eventPublisher.publishEvent(new ChangesCommitted(last));
+                }
+            }
+        });
+    }
+
+    // Joins the completed ranges that follow the readable prefix to it. Only the thread that removes the range right
+    // after the prefix moves it, and it looks for the next range again afterwards, so none is left behind.
+    private void complete(long first, long last) {
+        completed.put(first, last);
+        while (true) {
+            long upTo = readableUpTo.get();
+            Map.Entry<Long, Long> next = completed.firstEntry();
+            if (next == null || next.getKey() != upTo + 1 || !completed.remove(next.getKey(), next.getValue())) {
+                return;
+            }
+            readableUpTo.compareAndSet(upTo, next.getValue());
+        }
+    }
+}
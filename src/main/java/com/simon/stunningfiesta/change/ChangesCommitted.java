@@ -0,0 +1,7 @@
+package com.simon.stunningfiesta.change;
+
+/**
+ * Published once a transaction that recorded changes has committed, the changes up to {@code seq} may now be read.
+ */
+public record ChangesCommitted(long seq) {
+}
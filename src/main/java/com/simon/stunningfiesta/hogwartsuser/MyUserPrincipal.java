@@ -1,5 +1,8 @@
 package com.simon.stunningfiesta.hogwartsuser;
 
+import com.simon.stunningfiesta.security.HasRoles;
+import com.simon.stunningfiesta.security.RoleSet;
+import com.simon.stunningfiesta.security.Roles;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -8,22 +11,33 @@ import org.springframework.util.StringUtils;
 import java.util.Arrays;
 import java.util.Collection;
 
-public class MyUserPrincipal implements UserDetails {
+public class MyUserPrincipal implements UserDetails, HasRoles {
 
     private HogwartsUser hogwartsUser;
 
-    public MyUserPrincipal(HogwartsUser hogwartsUser) {
+    // Parsed once, the principal is cached (see UserDetailsCache) and rebuilt when the user changes.
+    private transient RoleSet roles;
+
+    public MyUserPrincipal(HogwartsUser hogwartsUser, RoleSet roles) {
         this.hogwartsUser = hogwartsUser;
+        this.roles = roles;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // Convert a user's roles from space-delimited string to a list of SimpleGrantedAuthority objects.
-        // E.g., John's roles are stored in a string like "admin user moderator", we need to convert it to a list of GrantedAuthority.
-        // Before conversion, we need to add this "ROLE_" prefix to each role name.
-        return Arrays.stream(StringUtils.tokenizeToStringArray(hogwartsUser.getRoles(), " "))
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                .toList();
+        // A user's roles are stored space-delimited, like "admin user moderator", each becomes a shared
+        // ROLE_ prefixed authority. Deserialized, the principal has lost them and builds its own.
+        if (roles == null) {
+            return Arrays.stream(StringUtils.tokenizeToStringArray(hogwartsUser.getRoles(), " "))
+                    .map(role -> new SimpleGrantedAuthority(Roles.PREFIX + role))
+                    .toList();
+        }
+        return roles.authorities();
+    }
+
+    @Override
+    public RoleSet roles() {
+        return roles;
     }
 
     @Override
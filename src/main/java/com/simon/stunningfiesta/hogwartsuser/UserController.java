@@ -1,12 +1,17 @@
 package com.simon.stunningfiesta.hogwartsuser;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.simon.stunningfiesta.hogwartsuser.converters.UserDtoToUserConverter;
 import com.simon.stunningfiesta.hogwartsuser.converters.UserToUserDtoConverter;
+import com.simon.stunningfiesta.system.NdjsonWriter;
 import com.simon.stunningfiesta.system.Result;
 import com.simon.stunningfiesta.system.StatusCode;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -20,16 +25,24 @@ public class UserController {
 
     private final UserDtoToUserConverter userDtoToUserConverter;
 
+    private final ObjectMapper objectMapper;
+
     public UserController(UserService userService,
                           UserToUserDtoConverter userToUserDtoConverter,
-                          UserDtoToUserConverter userDtoToUserConverter) {
+                          UserDtoToUserConverter userDtoToUserConverter,
+                          ObjectMapper objectMapper) {
         this.userService = userService;
         this.userToUserDtoConverter = userToUserDtoConverter;
         this.userDtoToUserConverter = userDtoToUserConverter;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public Result findAllUsers() {
+    public Result findAllUsers(@RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return Result.success("Find All Success")
+                    .withData(userService.findFields(fields));
+        }
         List<UserDto> userDtoList = userService.findAll()
                 .stream()
                 .map(userToUserDtoConverter::convert)
@@ -38,8 +51,21 @@ public class UserController {
                 .withData(userDtoList);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportAllUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper, response.getOutputStream());
+        userService.exportAll(ndjsonWriter::write);
+        ndjsonWriter.flush();
+    }
+
     @GetMapping("/{userId}")
-    public Result findUser(@PathVariable Integer userId) {
+    public Result findUser(@PathVariable Integer userId,
+                           @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return Result.success("Find User Success")
+                    .withData(userService.findFieldsById(userId, fields));
+        }
         return Result.success("Find User Success")
                 .withData(userToUserDtoConverter.convert(userService.findById(userId)));
     }
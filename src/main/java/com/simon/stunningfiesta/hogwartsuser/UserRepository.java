@@ -1,11 +1,22 @@
 package com.simon.stunningfiesta.hogwartsuser;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<HogwartsUser, Integer> {
     Optional<HogwartsUser> findByUsername(String username);
+
+    // Straight into the DTO, the password hash is never read and no entity is managed while the export runs.
+    @Query("select new com.simon.stunningfiesta.hogwartsuser.UserDto(u.id, u.username, u.enabled, u.roles) "
+            + "from HogwartsUser u order by u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<UserDto> streamAllDtos();
 }
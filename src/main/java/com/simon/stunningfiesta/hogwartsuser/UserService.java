@@ -1,59 +1,140 @@
 package com.simon.stunningfiesta.hogwartsuser;
 
+import com.simon.stunningfiesta.hogwartsuser.details.UserDetailsCache;
+import com.simon.stunningfiesta.security.Roles;
+import com.simon.stunningfiesta.security.VerifiedCredentialCache;
+import com.simon.stunningfiesta.system.NotFoundCache;
+import com.simon.stunningfiesta.system.SparseFields;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
+    // The password is never selectable.
+    private static final SparseFields<HogwartsUser> FIELDS = new SparseFields<>(HogwartsUser.class)
+            .with("username", source -> source.root().get("username"))
+            .with("enabled", source -> source.root().get("enabled"))
+            .with("roles", source -> source.root().get("roles"));
 
     private final UserRepository hogwartsUserRepository;
 
     private PasswordEncoder passwordEncoder;
 
-    public UserService(UserRepository hogwartsUserRepository, PasswordEncoder passwordEncoder) {
+    private final EntityManager entityManager;
+
+    private final NotFoundCache notFoundCache;
+
+    private final UserDetailsCache userDetailsCache;
+
+    private final VerifiedCredentialCache verifiedCredentialCache;
+
+    private final Roles roles;
+
+    public UserService(UserRepository hogwartsUserRepository,
+                       PasswordEncoder passwordEncoder,
+                       EntityManager entityManager,
+                       NotFoundCache notFoundCache,
+                       UserDetailsCache userDetailsCache,
+                       VerifiedCredentialCache verifiedCredentialCache,
+                       Roles roles) {
         this.hogwartsUserRepository = hogwartsUserRepository;
         this.passwordEncoder = passwordEncoder;
+        this.entityManager = entityManager;
+        this.notFoundCache = notFoundCache;
+        this.userDetailsCache = userDetailsCache;
+        this.verifiedCredentialCache = verifiedCredentialCache;
+        this.roles = roles;
     }
 
     public void deleteById(Integer id) {
-        findById(id);
+        HogwartsUser hogwartsUser = findById(id);
         hogwartsUserRepository.deleteById(id);
+        userDetailsCache.evict(hogwartsUser.getUsername());
+        verifiedCredentialCache.evict(hogwartsUser.getUsername());
     }
 
     public List<HogwartsUser> findAll() {
         return hogwartsUserRepository.findAll();
     }
 
-    public HogwartsUser findById(Integer id) {
-        return hogwartsUserRepository.findById(id)
+    public List<Map<String, Object>> findFields(String fields) {
+        return FIELDS.findAll(entityManager, FIELDS.parse(fields), null, null);
+    }
+
+    public Map<String, Object> findFieldsById(Integer id, String fields) {
+        return FIELDS.findById(entityManager, FIELDS.parse(fields), id)
                 .orElseThrow(() -> new ObjectNotFoundException("user", id));
     }
 
+    public void exportAll(Consumer<UserDto> consumer) {
+        try (Stream<UserDto> users = hogwartsUserRepository.streamAllDtos()) {
+            users.forEach(consumer);
+        }
+    }
+
+    public HogwartsUser findById(Integer id) {
+        return notFoundCache.find("user", id, () -> hogwartsUserRepository.findById(id));
+    }
+
+    // A cache hit needs no transaction, a miss joins the caller's one if any.
     @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return this.hogwartsUserRepository.findByUsername(username)
-                .map(MyUserPrincipal::new)
+        return userDetailsCache.get(username, name -> hogwartsUserRepository.findByUsername(name).map(this::principal))
                 .orElseThrow(() -> new UsernameNotFoundException(String.format("username %s is not found.", username)));
     }
 
+    /**
+     * Stores the password rehashed by the target encoder after a successful login with a hash made by another encoder
+     * or at a lower cost (see PasswordEncoders). The password is encoded already.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        HogwartsUser hogwartsUser = ((MyUserPrincipal) user).getHogwartsUser();
+        return hogwartsUserRepository.findById(hogwartsUser.getId())
+                .map(storedUser -> {
+                    storedUser.setPassword(newPassword);
+                    userDetailsCache.evict(storedUser.getUsername());
+                    return (UserDetails) principal(storedUser);
+                })
+                // Deleted meanwhile, nothing to upgrade.
+                .orElse(user);
+    }
+
     public HogwartsUser save(HogwartsUser hogwartsUser) {
         hogwartsUser.setPassword(passwordEncoder.encode(hogwartsUser.getPassword()));
-        return hogwartsUserRepository.save(hogwartsUser);
+        HogwartsUser savedUser = hogwartsUserRepository.save(hogwartsUser);
+        notFoundCache.forget("user", savedUser.getId());
+        // An earlier login attempt may have cached the username as unknown.
+        userDetailsCache.evict(savedUser.getUsername());
+        return savedUser;
     }
 
     public HogwartsUser update(Integer id, HogwartsUser hogwartsUser) {
         HogwartsUser userWillBeUpdate = findById(id);
+        userDetailsCache.evict(userWillBeUpdate.getUsername(), hogwartsUser.getUsername());
+        // Disabled, renamed or with other roles: its verified credentials no longer hold.
+        verifiedCredentialCache.evict(userWillBeUpdate.getUsername());
         userWillBeUpdate.setUsername(hogwartsUser.getUsername())
                 .setEnabled(hogwartsUser.isEnabled())
                 .setRoles(hogwartsUser.getRoles());
         return hogwartsUserRepository.save(userWillBeUpdate);
     }
+
+    private MyUserPrincipal principal(HogwartsUser hogwartsUser) {
+        return new MyUserPrincipal(hogwartsUser, roles.ofUserRoles(hogwartsUser.getRoles()));
+    }
 }
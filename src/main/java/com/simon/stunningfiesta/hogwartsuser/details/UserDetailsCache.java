@@ -0,0 +1,57 @@
+package com.simon.stunningfiesta.hogwartsuser.details;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simon.stunningfiesta.hogwartsuser.MyUserPrincipal;
+import com.simon.stunningfiesta.system.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Caches the principals loaded for authentication by username, unknown usernames included (as empty), so neither
+ * repeated logins nor a scan of made-up usernames query the users table each time.
+ * Entries are evicted once the change to their user commits, the TTL only bounds anything missed.
+ * Hit and miss counts are published as the cache.* metrics of the "userDetails" cache.
+ */
+@Component
+public class UserDetailsCache {
+    public static final String NAME = "userDetails";
+
+    private final Cache<String, Optional<MyUserPrincipal>> principals;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${api.security.user-details.ttl:5m}") Duration ttl,
+                            @Value("${api.security.user-details.max-size:10000}") long maxSize) {
+        // W-TinyLFU admission keeps a burst of unknown usernames from flushing out the users who actually log in.
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, NAME);
+    }
+
+    public Optional<MyUserPrincipal> get(String username, Function<String, Optional<MyUserPrincipal>> loader) {
+        return principals.get(username, loader);
+    }
+
+    /**
+     * Evicts the usernames once the current transaction commits. A load racing the commit may still read the old row,
+     * but then it finishes before the eviction, which waits for it, and is evicted too.
+     */
+    public void evict(String... usernames) {
+        AfterCommit.run(() -> {
+            for (String username : usernames) {
+                if (username != null) {
+                    principals.invalidate(username);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package com.simon.stunningfiesta.security;
+
+import com.simon.stunningfiesta.system.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the delegate's (slow, CPU bound) encode and matches on a small pool of its own, so a burst of logins takes at
+ * most that pool's threads and never the request threads every other endpoint needs.
+ * <p>
+ * The calling thread still waits for the result, but only up to maxWait: when the pool and its bounded queue are
+ * full, or the wait runs out, PasswordHashingBusyException is thrown right away (answered 503 with Retry-After).
+ * Meters: password.hashing (time hashing, by operation), password.hashing.queue.time, password.hashing.queue.depth
+ * and password.hashing.rejected.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private final PasswordEncoder delegate;
+
+    private final Duration maxWait;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchesTimer;
+
+    private final Timer queueTimer;
+
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry,
+                                  int threads, int queueCapacity, Duration maxWait) {
+        this.delegate = delegate;
+        this.maxWait = maxWait;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").register(meterRegistry);
+        this.queueTimer = Timer.builder("password.hashing.queue.time").register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return call(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return call(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only parses the hash, no need for the pool.
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T call(Timer timer, Callable<T> hashing) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(hashing);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException();
+        }
+        try {
+            return future.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Still queued, it won't run at all; already running, its result is dropped.
+            future.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingBusyException();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
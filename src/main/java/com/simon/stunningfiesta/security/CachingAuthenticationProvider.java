@@ -0,0 +1,49 @@
+package com.simon.stunningfiesta.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Answers repeated username and password authentications from the {@link VerifiedCredentialCache} and only hands
+ * the others to the delegate, which checks the password. Failed authentications are never cached.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+    private final AuthenticationProvider delegate;
+
+    private final VerifiedCredentialCache verifiedCredentialCache;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, VerifiedCredentialCache verifiedCredentialCache) {
+        this.delegate = delegate;
+        this.verifiedCredentialCache = verifiedCredentialCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        String key = verifiedCredentialCache.key(username, authentication.getCredentials().toString());
+        Authentication cached = verifiedCredentialCache.get(key);
+        if (cached != null) {
+            // A token of its own, the details (remote address...) are the current request's.
+            UsernamePasswordAuthenticationToken result =
+                    UsernamePasswordAuthenticationToken.authenticated(cached.getPrincipal(), null, cached.getAuthorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+        long generation = verifiedCredentialCache.generation();
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            verifiedCredentialCache.put(key, username, result, generation);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+}
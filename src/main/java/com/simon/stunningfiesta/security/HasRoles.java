@@ -0,0 +1,12 @@
+package com.simon.stunningfiesta.security;
+
+/**
+ * Implemented by the principals and tokens carrying a parsed {@link RoleSet}, which {@link RoleAuthorizationManager}
+ * checks without looking at the authority strings.
+ */
+public interface HasRoles {
+    /**
+     * The parsed roles, or null when they aren't at hand (a deserialized principal): the authority strings count then.
+     */
+    RoleSet roles();
+}
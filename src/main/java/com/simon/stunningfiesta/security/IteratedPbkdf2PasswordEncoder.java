@@ -0,0 +1,71 @@
+package com.simon.stunningfiesta.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PBKDF2-HMAC-SHA256 whose hashes carry their iteration count ("600000$hex"), which Pbkdf2PasswordEncoder's don't:
+ * raising the count then rehashes older hashes on login, like the other encoders' costs. Hashes without a count
+ * are checked at the current one and always rehashed.
+ */
+final class IteratedPbkdf2PasswordEncoder implements PasswordEncoder {
+    private static final char SEPARATOR = '$';
+
+    private final int iterations;
+
+    // By iteration count, only the few counts ever configured show up.
+    private final Map<Integer, Pbkdf2PasswordEncoder> encoders = new ConcurrentHashMap<>();
+
+    IteratedPbkdf2PasswordEncoder(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return iterations + String.valueOf(SEPARATOR) + encoder(iterations).encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        int separator = encodedPassword.indexOf(SEPARATOR);
+        if (separator < 0) {
+            return encoder(iterations).matches(rawPassword, encodedPassword);
+        }
+        Integer hashIterations = parseIterations(encodedPassword.substring(0, separator));
+        return hashIterations != null
+                && encoder(hashIterations).matches(rawPassword, encodedPassword.substring(separator + 1));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        int separator = encodedPassword.indexOf(SEPARATOR);
+        if (separator < 0) {
+            return true;
+        }
+        Integer hashIterations = parseIterations(encodedPassword.substring(0, separator));
+        return hashIterations == null || hashIterations < iterations;
+    }
+
+    private Pbkdf2PasswordEncoder encoder(int iterations) {
+        return encoders.computeIfAbsent(iterations, count -> new Pbkdf2PasswordEncoder("", 16, count,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+    }
+
+    private static Integer parseIterations(String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -32,7 +32,7 @@ public class JwtProvider {
                 .issuedAt(now)
                 .expiresAt(now.plus(2, ChronoUnit.HOURS)) // Expires after 2 hours.
                 .subject(authentication.getName())
-                .claim("authorities", authorities)
+                .claim(RoleJwtAuthenticationConverter.AUTHORITIES_CLAIM, authorities)
                 .build();
 
         return jwtEncoder.encode(JwtEncoderParameters.from(claimsSet)).getTokenValue();
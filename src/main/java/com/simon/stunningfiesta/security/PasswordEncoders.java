@@ -0,0 +1,48 @@
+package com.simon.stunningfiesta.security;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the password encoders. Hashes are stored prefixed with the id of their encoder ({bcrypt}, {argon2},
+ * {pbkdf2}), so the target encoder and its cost can change without invalidating the stored hashes: a hash made by
+ * another encoder, or by the same one at a lower cost, is rehashed on the user's next successful login.
+ */
+public final class PasswordEncoders {
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+    public static final String PBKDF2 = "pbkdf2";
+
+    private PasswordEncoders() {
+    }
+
+    /**
+     * @param bcryptStrength   log2 of the BCrypt rounds.
+     * @param argon2MemoryKib  memory per Argon2 hash, in KiB.
+     * @param argon2Iterations passes of Argon2 over that memory.
+     * @param pbkdf2Iterations iterations of PBKDF2-HMAC-SHA256.
+     */
+    public static Map<String, PasswordEncoder> byId(int bcryptStrength, int argon2MemoryKib, int argon2Iterations,
+                                                    int pbkdf2Iterations) {
+        Map<String, PasswordEncoder> encoders = new LinkedHashMap<>();
+        encoders.put(BCRYPT, new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put(ARGON2, new Argon2PasswordEncoder(16, 32, 1, argon2MemoryKib, argon2Iterations));
+        encoders.put(PBKDF2, new IteratedPbkdf2PasswordEncoder(pbkdf2Iterations));
+        return encoders;
+    }
+
+    public static DelegatingPasswordEncoder delegating(String idForEncode, Map<String, PasswordEncoder> encoders) {
+        if (!encoders.containsKey(idForEncode)) {
+            throw new IllegalArgumentException("Unknown password encoder " + idForEncode + ", expected one of " + encoders.keySet() + ".");
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(idForEncode, encoders);
+        // Hashes stored before the prefix was introduced are plain BCrypt, matched whatever their cost.
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return delegating;
+    }
+}
@@ -0,0 +1,9 @@
+package com.simon.stunningfiesta.security;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * A role known to the {@link Roles} registry: its one shared authority instance and its bit in a {@link RoleSet}.
+ */
+public record Role(int bit, SimpleGrantedAuthority authority) {
+}
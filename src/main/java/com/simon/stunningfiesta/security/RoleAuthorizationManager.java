@@ -0,0 +1,54 @@
+package com.simon.stunningfiesta.security;
+
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Grants requests whose authentication has the role. For our principals and tokens ({@link HasRoles}) that is a
+ * bit test and the decisions are shared instances, so checking allocates nothing. Any other authentication (a
+ * test's mock user, a deserialized principal...) falls back to comparing its authority strings.
+ */
+public final class RoleAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final Role role;
+
+    private RoleAuthorizationManager(Role role) {
+        this.role = role;
+    }
+
+    public static RoleAuthorizationManager hasAuthority(Roles roles, String authority) {
+        return new RoleAuthorizationManager(roles.role(authority));
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        Authentication current = authentication.get();
+        return current != null && current.isAuthenticated() && has(current) ? GRANTED : DENIED;
+    }
+
+    private boolean has(Authentication authentication) {
+        RoleSet roles = null;
+        if (authentication instanceof HasRoles token) {
+            roles = token.roles();
+        } else if (authentication.getPrincipal() instanceof HasRoles principal) {
+            roles = principal.roles();
+        }
+        if (roles != null) {
+            return roles.has(role);
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (role.authority().getAuthority().equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
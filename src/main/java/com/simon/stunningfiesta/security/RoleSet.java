@@ -0,0 +1,31 @@
+package com.simon.stunningfiesta.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An immutable set of roles, parsed once by {@link Roles} and shared: the authorities for Spring Security, a bit
+ * per role for the authorization checks.
+ */
+public final class RoleSet {
+    static final RoleSet EMPTY = new RoleSet(List.of());
+
+    private final List<GrantedAuthority> authorities;
+
+    private final BitSet bits = new BitSet();
+
+    RoleSet(List<Role> roles) {
+        this.authorities = roles.stream().map(role -> (GrantedAuthority) role.authority()).toList();
+        roles.forEach(role -> bits.set(role.bit()));
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return authorities;
+    }
+
+    public boolean has(Role role) {
+        return bits.get(role.bit());
+    }
+}
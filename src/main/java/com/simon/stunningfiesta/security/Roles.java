@@ -0,0 +1,66 @@
+package com.simon.stunningfiesta.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The role registry: one {@link Role} per authority ever seen, with its bit assigned in order of appearance.
+ * <p>
+ * Role strings come in space-delimited, as stored on a user ("admin user") or as put in the authorities claim of
+ * our tokens ("ROLE_admin ROLE_user"). Few distinct strings exist, each is parsed once and its RoleSet shared.
+ * <p>
+ * Bits only mean something within one registry: take the application's instance, RoleSets and Roles of another
+ * aren't comparable to it.
+ */
+@Component
+public final class Roles {
+    public static final String PREFIX = "ROLE_";
+
+    private final ConcurrentMap<String, Role> byAuthority = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextBit = new AtomicInteger();
+
+    private final Cache<String, RoleSet> byUserRoles = Caffeine.newBuilder().maximumSize(1_000).build();
+
+    private final Cache<String, RoleSet> byClaim = Caffeine.newBuilder().maximumSize(1_000).build();
+
+    public Role role(String authority) {
+        return byAuthority.computeIfAbsent(authority,
+                name -> new Role(nextBit.getAndIncrement(), new SimpleGrantedAuthority(name)));
+    }
+
+    /**
+     * Parses a user's roles, e.g. "admin user", each prefixed with ROLE_.
+     */
+    public RoleSet ofUserRoles(String roles) {
+        if (roles == null) {
+            return RoleSet.EMPTY;
+        }
+        return byUserRoles.get(roles, key -> parse(key, PREFIX));
+    }
+
+    /**
+     * Parses an authorities claim, e.g. "ROLE_admin ROLE_user".
+     */
+    public RoleSet ofClaim(String claim) {
+        if (claim == null) {
+            return RoleSet.EMPTY;
+        }
+        return byClaim.get(claim, key -> parse(key, ""));
+    }
+
+    private RoleSet parse(String roles, String prefix) {
+        return new RoleSet(Arrays.stream(StringUtils.tokenizeToStringArray(roles, " "))
+                .distinct()
+                .map(name -> role(prefix + name))
+                .toList());
+    }
+}
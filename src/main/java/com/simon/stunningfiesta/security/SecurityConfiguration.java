@@ -4,20 +4,21 @@ import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.simon.stunningfiesta.hogwartsuser.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
-import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.*;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
-import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
@@ -26,6 +27,7 @@ import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
 
 @Configuration
 public class SecurityConfiguration {
@@ -40,9 +42,16 @@ public class SecurityConfiguration {
     @Value("${api.endpoint.base-url}")
     private String baseUrl;
 
+    private final Roles roles;
+
+    private final RoleAuthorizationManager admin;
+
     public SecurityConfiguration(CustomBasicAuthenticationEntryPoint customBasicAuthenticationEntryPoint,
                                  CustomBearerTokenAuthenticationEntryPoint customBearerTokenAuthenticationEntryPoint,
-                                 CustomBearerTokenAccessDeniedHandler customBearerTokenAccessDeniedHandler) throws NoSuchAlgorithmException {
+                                 CustomBearerTokenAccessDeniedHandler customBearerTokenAccessDeniedHandler,
+                                 Roles roles) throws NoSuchAlgorithmException {
+        this.roles = roles;
+        this.admin = RoleAuthorizationManager.hasAuthority(roles, "ROLE_admin");
         this.customBasicAuthenticationEntryPoint = customBasicAuthenticationEntryPoint;
         this.customBearerTokenAuthenticationEntryPoint = customBearerTokenAuthenticationEntryPoint;
         this.customBearerTokenAccessDeniedHandler = customBearerTokenAccessDeniedHandler;
@@ -57,11 +66,15 @@ public class SecurityConfiguration {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http.authorizeHttpRequests(authorizeHttpRequests -> authorizeHttpRequests
                         .requestMatchers(HttpMethod.GET, this.baseUrl + "/artifacts/**").permitAll()
-                        .requestMatchers(HttpMethod.GET, this.baseUrl + "/users/**").hasAuthority("ROLE_admin")
-                        .requestMatchers(HttpMethod.POST, this.baseUrl + "/users").hasAuthority("ROLE_admin")
-                        .requestMatchers(HttpMethod.PUT, this.baseUrl + "/users/**").hasAuthority("ROLE_admin")
-                        .requestMatchers(HttpMethod.DELETE, this.baseUrl + "/users/**").hasAuthority("ROLE_admin")
+                        // Role checks are bit tests against the roles parsed once per user or token, see Roles.
+                        .requestMatchers(HttpMethod.GET, this.baseUrl + "/users/**").access(admin)
+                        .requestMatchers(HttpMethod.POST, this.baseUrl + "/users").access(admin)
+                        .requestMatchers(HttpMethod.PUT, this.baseUrl + "/users/**").access(admin)
+                        .requestMatchers(HttpMethod.DELETE, this.baseUrl + "/users/**").access(admin)
                         .requestMatchers(AntPathRequestMatcher.antMatcher("/h2-console/**")).permitAll()
+                        .requestMatchers(AntPathRequestMatcher.antMatcher("/actuator/**")).access(admin)
+                        // The request that started an async response (the change stream) was authorized already.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // disallow everything else.
                         .anyRequest().authenticated() // Always a good idea to put this as last.
                 )
@@ -69,8 +82,7 @@ public class SecurityConfiguration {
                 .httpBasic(httpBasic -> httpBasic.authenticationEntryPoint(customBasicAuthenticationEntryPoint))
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt()
-                        .and()
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.jwtAuthenticationConverter(roleJwtAuthenticationConverter()))
                         .authenticationEntryPoint(customBearerTokenAuthenticationEntryPoint)
                         .accessDeniedHandler(customBearerTokenAccessDeniedHandler))
                 /* Configures the spring boot application as an OAuth2 Resource Server which authenticates all
@@ -80,9 +92,38 @@ public class SecurityConfiguration {
                 .build();
     }
 
+    // Hashing takes a few hundred milliseconds of CPU per call at the configured costs, it gets a pool of its own.
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${api.security.hashing.threads:2}") int threads,
+                                           @Value("${api.security.hashing.queue-capacity:32}") int queueCapacity,
+                                           @Value("${api.security.hashing.max-wait:2s}") Duration maxWait,
+                                           @Value("${api.security.password.encoder:bcrypt}") String encoder,
+                                           @Value("${api.security.password.bcrypt-strength:12}") int bcryptStrength,
+                                           @Value("${api.security.password.argon2-memory-kib:19456}") int argon2MemoryKib,
+                                           @Value("${api.security.password.argon2-iterations:2}") int argon2Iterations,
+                                           @Value("${api.security.password.pbkdf2-iterations:600000}") int pbkdf2Iterations) {
+        PasswordEncoder delegating = PasswordEncoders.delegating(encoder,
+                PasswordEncoders.byId(bcryptStrength, argon2MemoryKib, argon2Iterations, pbkdf2Iterations));
+        return new BoundedPasswordEncoder(delegating, meterRegistry, threads, queueCapacity, maxWait);
+    }
+
+    /*
+     * The provider checking usernames and passwords (HTTP Basic). With api.security.basic-cache.enabled, clients
+     * repeating the same credentials skip the password check for a short while, see VerifiedCredentialCache.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public AuthenticationProvider authenticationProvider(UserService userService,
+                                                         PasswordEncoder passwordEncoder,
+                                                         VerifiedCredentialCache verifiedCredentialCache,
+                                                         @Value("${api.security.basic-cache.enabled:false}") boolean cacheVerified) {
+        DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
+        daoAuthenticationProvider.setUserDetailsService(userService);
+        daoAuthenticationProvider.setUserDetailsPasswordService(userService);
+        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder);
+        return cacheVerified
+                ? new CachingAuthenticationProvider(daoAuthenticationProvider, verifiedCredentialCache)
+                : daoAuthenticationProvider;
     }
 
     @Bean
@@ -96,15 +137,9 @@ public class SecurityConfiguration {
         return NimbusJwtDecoder.withPublicKey(this.publicKey).build();
     }
 
+    // The authorities claim holds "ROLE_admin ROLE_user", taken as is (no `SCOPE_` prefix).
     @Bean
-    public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
-        jwtGrantedAuthoritiesConverter.setAuthoritiesClaimName("authorities");
-        // default prefix is `SCOPE_`, `SCOPE_ROLE_admin`, so we need set prefix to empty.
-        jwtGrantedAuthoritiesConverter.setAuthorityPrefix("");
-
-        JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
-        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter);
-        return jwtAuthenticationConverter;
+    public RoleJwtAuthenticationConverter roleJwtAuthenticationConverter() {
+        return new RoleJwtAuthenticationConverter(roles);
     }
 }
@@ -0,0 +1,107 @@
+package com.simon.stunningfiesta.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simon.stunningfiesta.system.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers, for api.security.basic-cache.ttl, the username and password pairs that were verified successfully, so
+ * a client sending the same Basic credentials with every request pays for the password hashing once.
+ * <p>
+ * Entries are keyed by an HMAC of the pair under a key generated at startup, the password itself is never kept.
+ * Changing or deleting a user evicts its entries once the change commits. A verification that was in flight while
+ * that happened isn't cached, see {@link #generation()}.
+ */
+@Component
+public class VerifiedCredentialCache {
+    public static final String NAME = "verifiedCredentials";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    private final Cache<String, Verified> verified;
+
+    // Incremented by every eviction.
+    private final AtomicLong generation = new AtomicLong();
+
+    public VerifiedCredentialCache(MeterRegistry meterRegistry,
+                                   @Value("${api.security.basic-cache.ttl:1m}") Duration ttl,
+                                   @Value("${api.security.basic-cache.max-size:10000}") long maxSize) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.verified = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, NAME);
+    }
+
+    public String key(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            // Separates the two, so "ab" + "c" and "a" + "bc" differ.
+            mac.update((byte) 0);
+            return HexFormat.of().formatHex(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Authentication get(String key) {
+        Verified entry = verified.getIfPresent(key);
+        return entry == null ? null : entry.authentication();
+    }
+
+    /**
+     * Read before verifying, to be handed to {@link #put}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the verification unless an eviction happened since {@code generationBefore} was read: the verification
+     * may have seen the user before that change.
+     */
+    public void put(String key, String username, Authentication authentication, long generationBefore) {
+        verified.put(key, new Verified(username, authentication));
+        // An eviction incrementing after this check removes the entry itself, one incrementing before is seen here.
+        if (generation.get() != generationBefore) {
+            verified.invalidate(key);
+        }
+    }
+
+    public void evict(String... usernames) {
+        Set<String> evicted = Arrays.stream(usernames).filter(Objects::nonNull).collect(Collectors.toSet());
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            verified.asMap().values().removeIf(entry -> evicted.contains(entry.username()));
+        });
+    }
+
+    private record Verified(String username, Authentication authentication) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.simon.stunningfiesta.system;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through caches of artifact and wizard reads, keyed by id.
+ * The services cache their summaries; the wizard controller can additionally cache the converted DTOs
+ * (api.cache.dtos). A cached artifact takes its owner's name, count and version from the wizards cache when it is
+ * read, so a change to a wizard evicts the wizard alone, never the artifacts it owns. Writes evict after the
+ * transaction commits, so a reader never caches a value the writer is about to roll back.
+ * <p>
+ * A reader may still have loaded its value before that commit and put it after the eviction: like NotFoundCache,
+ * each eviction bumps a generation (striped by cache and id), and a reader that sees it change drops what it put.
+ */
+@Component
+public class CatalogCache {
+    public static final String ARTIFACTS = "artifacts";
+    public static final String WIZARDS = "wizards";
+    public static final String WIZARD_DTOS = "wizardDtos";
+
+    private static final int STRIPES = 64;
+
+    private final CacheManager cacheManager;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private final boolean cacheDtos;
+
+    public CatalogCache(CacheManager cacheManager, @Value("${api.cache.dtos:false}") boolean cacheDtos) {
+        this.cacheManager = cacheManager;
+        this.cacheDtos = cacheDtos;
+    }
+
+    /**
+     * Returns the cached DTO or loads, and caches, it. Just calls the loader when DTO caching is off.
+     * Exceptions thrown by the loader propagate as they are and nothing is cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T dto(String cacheName, Integer id, Supplier<T> loader) {
+        if (!cacheDtos) {
+            return loader.get();
+        }
+        Cache cache = getCache(cacheName);
+        Cache.ValueWrapper cached = cache.get(id);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        long generation = generation(cacheName, id);
+        T value = loader.get();
+        put(cache, cacheName, id, value, generation);
+        return value;
+    }
+
+    /**
+     * Returns the cached value or loads, and caches, it. A null from the loader is returned but not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheName, Integer id, Supplier<T> loader) {
+        Cache cache = getCache(cacheName);
+        Cache.ValueWrapper cached = cache.get(id);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        long generation = generation(cacheName, id);
+        T value = loader.get();
+        if (value != null) {
+            put(cache, cacheName, id, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached values of the ids, and loads the others with {@code loader}, at most {@code chunkSize} ids
+     * per call, caching what it finds. Ids found nowhere are absent from the returned map.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<Integer, T> getAll(String cacheName, List<Integer> ids, int chunkSize,
+                                      Function<List<Integer>, List<T>> loader, Function<T, Integer> idOf) {
+        Cache cache = getCache(cacheName);
+        Map<Integer, T> found = new HashMap<>();
+        List<Integer> misses = new ArrayList<>();
+        Map<Integer, Long> missGenerations = new HashMap<>();
+        for (Integer id : ids) {
+            Cache.ValueWrapper cached = cache.get(id);
+            if (cached != null) {
+                found.put(id, (T) cached.get());
+            } else {
+                misses.add(id);
+                missGenerations.put(id, generation(cacheName, id));
+            }
+        }
+        for (int from = 0; from < misses.size(); from += chunkSize) {
+            for (T value : loader.apply(misses.subList(from, Math.min(from + chunkSize, misses.size())))) {
+                Integer id = idOf.apply(value);
+                found.put(id, value);
+                put(cache, cacheName, id, value, missGenerations.getOrDefault(id, -1L));
+            }
+        }
+        return found;
+    }
+
+    public void evictArtifact(Integer id) {
+        evictArtifacts(List.of(id));
+    }
+
+    public void evictArtifacts(Collection<Integer> ids) {
+        AfterCommit.run(() -> ids.forEach(id -> evict(ARTIFACTS, id)));
+    }
+
+    /**
+     * Evicts a wizard. The artifacts it owns stay cached, they pick up the new owner fields on their next read.
+     */
+    public void evictWizard(Integer id) {
+        evictWizards(List.of(id));
+    }
+
+    public void evictWizards(Collection<Integer> ids) {
+        AfterCommit.run(() -> ids.forEach(id -> {
+            evict(WIZARDS, id);
+            evict(WIZARD_DTOS, id);
+        }));
+    }
+
+    private long generation(String cacheName, Integer id) {
+        return generations.get(stripe(cacheName, id));
+    }
+
+    // Checked after the put: an eviction either sees the entry and evicts it, or bumped the generation first.
+    private void put(Cache cache, String cacheName, Integer id, Object value, long generation) {
+        cache.put(id, value);
+        if (generation(cacheName, id) != generation) {
+            cache.evict(id);
+        }
+    }
+
+    private void evict(String cacheName, Integer id) {
+        generations.incrementAndGet(stripe(cacheName, id));
+        getCache(cacheName).evict(id);
+    }
+
+    private static int stripe(String cacheName, Integer id) {
+        return Math.floorMod(Objects.hash(cacheName, id), STRIPES);
+    }
+
+    private Cache getCache(String cacheName) {
+        return Objects.requireNonNull(cacheManager.getCache(cacheName), () -> "No cache named " + cacheName);
+    }
+}
@@ -0,0 +1,26 @@
+package com.simon.stunningfiesta.system;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the artifact and wizard catalog as a whole, used as the ETag of the list endpoints.
+ * Every committed change to an artifact or a wizard increments it. The epoch is random per start,
+ * so tags handed out before a restart never match again.
+ */
+@Component
+public class CatalogVersion {
+    private final long epoch = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+
+    private final AtomicLong version = new AtomicLong();
+
+    public void increment() {
+        AfterCommit.run(version::incrementAndGet);
+    }
+
+    public String etag() {
+        return "\"catalog-" + Long.toString(epoch, 36) + "-" + version.get() + "\"";
+    }
+}
@@ -0,0 +1,74 @@
+package com.simon.stunningfiesta.system;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries an operation that lost a race against a concurrent writer: an optimistic version or compare-and-set
+ * mismatch, a lock timeout or a deadlock. Each attempt has to run in a transaction of its own, so call it from
+ * outside the transactional service.
+ * <p>
+ * The backoff is exponential with full jitter, so clients that collided spread out instead of colliding again in
+ * lockstep. Outcomes are counted in the catalog.conflicts metric, tagged with the operation.
+ */
+@Component
+public class ConflictRetry {
+    private final MeterRegistry meterRegistry;
+
+    private final int maxAttempts;
+
+    private final long baseDelayNanos;
+
+    private final long maxDelayNanos;
+
+    public ConflictRetry(MeterRegistry meterRegistry,
+                         @Value("${api.retry.max-attempts:5}") int maxAttempts,
+                         @Value("${api.retry.base-delay:5ms}") Duration baseDelay,
+                         @Value("${api.retry.max-delay:200ms}") Duration maxDelay) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = action.get();
+                if (attempt > 1) {
+                    counter(operation, "recovered").increment();
+                }
+                return result;
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    counter(operation, "exhausted").increment();
+                    throw ex;
+                }
+                counter(operation, "retried").increment();
+                backOff(attempt, ex);
+            }
+        }
+    }
+
+    private void backOff(int attempt, ConcurrencyFailureException ex) {
+        long ceiling = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt - 1, 20));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw ex;
+        }
+    }
+
+    private Counter counter(String operation, String outcome) {
+        return meterRegistry.counter("catalog.conflicts", "operation", operation, "outcome", outcome);
+    }
+}
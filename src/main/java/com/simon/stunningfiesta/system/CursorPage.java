@@ -0,0 +1,47 @@
+package com.simon.stunningfiesta.system;
+
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) listing.
+ * The cursor is opaque to clients, it only encodes the last id of the page so that the next page can seek past it.
+ */
+public record CursorPage<T>(List<T> content, String nextCursor) {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    public static final int MAX_LIMIT = 100;
+
+    public static <T> CursorPage<T> of(List<T> content, int limit, Integer lastId) {
+        // A short page means there is nothing left to read.
+        return new CursorPage<>(content, content.size() < limit ? null : encodeCursor(lastId));
+    }
+
+    public static String encodeCursor(Integer id) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Integer decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(String.format("Invalid cursor %s", cursor));
+        }
+    }
+
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null || limit < 1) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
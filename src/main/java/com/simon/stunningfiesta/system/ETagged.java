@@ -0,0 +1,7 @@
+package com.simon.stunningfiesta.system;
+
+/**
+ * A representation together with the ETag it was rendered from, so both can be cached as one value.
+ */
+public record ETagged<T>(T value, String etag) {
+}
@@ -0,0 +1,60 @@
+package com.simon.stunningfiesta.system;
+
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Answer to a multi-get ({@code ?ids=1,2,3}): the found items in the order their ids were requested, and the ids
+ * that were not found, which don't fail the request.
+ */
+public record MultiGetResult<T>(List<T> items, List<Integer> missing) {
+
+    public static final int MAX_IDS = 500;
+
+    /**
+     * Parses the comma separated ids, duplicates are dropped and the first occurrence keeps its position.
+     */
+    public static List<Integer> parseIds(String ids) {
+        Set<Integer> parsed = new LinkedHashSet<>();
+        Arrays.stream(ids.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .forEach(id -> parsed.add(parseId(id)));
+        if (parsed.isEmpty()) {
+            throw new BadRequestException("ids must not be empty.");
+        }
+        if (parsed.size() > MAX_IDS) {
+            throw new BadRequestException(String.format("At most %d ids can be requested at once.", MAX_IDS));
+        }
+        return new ArrayList<>(parsed);
+    }
+
+    private static Integer parseId(String id) {
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException(String.format("Invalid id %s", id));
+        }
+    }
+
+    public static <S, T> MultiGetResult<T> of(List<Integer> ids, Map<Integer, S> found, Function<S, T> converter) {
+        List<T> items = new ArrayList<>(found.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            S source = found.get(id);
+            if (source == null) {
+                missing.add(id);
+            } else {
+                items.add(converter.apply(source));
+            }
+        }
+        return new MultiGetResult<>(items, missing);
+    }
+}
@@ -0,0 +1,46 @@
+package com.simon.stunningfiesta.system;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes values as newline delimited JSON (one document per line) straight to an output stream.
+ * Nothing is buffered beyond the generator's own buffer, so the memory used is the same for ten rows or ten million.
+ */
+public class NdjsonWriter {
+    private static final int FLUSH_EVERY = 500; // Flush in chunks rather than once per row.
+
+    private final JsonGenerator generator;
+
+    private final ObjectWriter objectWriter;
+
+    private int count;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(outputStream);
+        this.generator.setRootValueSeparator(null);
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void write(Object value) {
+        try {
+            objectWriter.writeValue(generator, value);
+            generator.writeRaw('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void flush() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,69 @@
+package com.simon.stunningfiesta.system;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Remembers ids that were just looked up and not found, for api.cache.not-found-ttl, so clients repeating the same
+ * miss don't cost a query each. Saving an object forgets its id once the transaction commits.
+ * <p>
+ * A lookup may still run on a snapshot from before that commit and remember the id after it was forgotten: each
+ * forget bumps a generation (striped by key), and a lookup that sees it change drops what it just remembered.
+ */
+@Component
+public class NotFoundCache {
+    private static final int STRIPES = 64;
+
+    private final Cache<Key, Boolean> missing;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    public NotFoundCache(@Value("${api.cache.not-found-ttl:30s}") Duration ttl) {
+        this.missing = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(10_000)
+                .build();
+    }
+
+    /**
+     * Returns what the finder finds, or throws ObjectNotFoundException without calling it if the id was missing
+     * a moment ago.
+     */
+    public <T> T find(String objectName, Integer id, Supplier<Optional<T>> finder) {
+        Key key = new Key(objectName, id);
+        if (missing.getIfPresent(key) != null) {
+            throw new ObjectNotFoundException(objectName, id);
+        }
+        long generation = generations.get(key.stripe());
+        return finder.get().orElseThrow(() -> {
+            missing.put(key, Boolean.TRUE);
+            // Checked after the put: a forget either sees the entry and invalidates it, or bumped the generation first.
+            if (generations.get(key.stripe()) != generation) {
+                missing.invalidate(key);
+            }
+            return new ObjectNotFoundException(objectName, id);
+        });
+    }
+
+    public void forget(String objectName, Integer id) {
+        Key key = new Key(objectName, id);
+        AfterCommit.run(() -> {
+            generations.incrementAndGet(key.stripe());
+            missing.invalidate(key);
+        });
+    }
+
+    private record Key(String objectName, Integer id) {
+        private int stripe() {
+            return Math.floorMod(hashCode(), STRIPES);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.simon.stunningfiesta.system;
+
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Sparse fieldsets for an entity, e.g. {@code ?fields=name,owner.name}: only the requested columns are selected,
+ * with a criteria tuple query, and only they end up in the response.
+ * <p>
+ * Field names are the ones of the DTO, dotted for nested objects, and a nested object's name alone selects all of
+ * its fields. The id is always selected, paged listings need it for their cursor.
+ */
+public class SparseFields<T> {
+    private static final String ID = "id";
+
+    private final Class<T> entityType;
+
+    private final Map<String, Function<Source<T>, Expression<?>>> columns = new LinkedHashMap<>();
+
+    private Restriction<T> filter = (builder, root) -> null;
+
+    public SparseFields(Class<T> entityType) {
+        this.entityType = entityType;
+        with(ID, source -> source.root().get(ID));
+    }
+
+    public SparseFields<T> with(String field, Function<Source<T>, Expression<?>> column) {
+        columns.put(field, column);
+        return this;
+    }
+
+    /**
+     * Restricts every query to the rows matching the filter, e.g. to hide soft deleted rows.
+     */
+    public SparseFields<T> where(Restriction<T> filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Resolves the comma separated fields parameter into known fields, in the order they are declared.
+     */
+    public List<String> parse(String fields) {
+        Set<String> requested = new HashSet<>();
+        requested.add(ID);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            List<String> matching = columns.keySet().stream()
+                    .filter(column -> column.equals(name) || column.startsWith(name + "."))
+                    .toList();
+            if (matching.isEmpty()) {
+                throw new BadRequestException(String.format("Unknown field %s, expected any of %s",
+                        name, String.join(", ", columns.keySet())));
+            }
+            requested.addAll(matching);
+        }
+        return columns.keySet().stream().filter(requested::contains).toList();
+    }
+
+    public List<Map<String, Object>> findAll(EntityManager entityManager, List<String> fields,
+                                             Integer afterId, Integer limit) {
+        TypedQuery<Tuple> query = createQuery(entityManager, fields,
+                (builder, root) -> afterId == null ? null : builder.greaterThan(root.get(ID), afterId));
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultStream().map(tuple -> toMap(fields, tuple)).toList();
+    }
+
+    public Optional<Map<String, Object>> findById(EntityManager entityManager, List<String> fields, Integer id) {
+        return createQuery(entityManager, fields, (builder, root) -> builder.equal(root.get(ID), id))
+                .getResultStream()
+                .findFirst()
+                .map(tuple -> toMap(fields, tuple));
+    }
+
+    private TypedQuery<Tuple> createQuery(EntityManager entityManager, List<String> fields, Restriction<T> restriction) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Source<T> source = new Source<>(builder, query, query.from(entityType), new HashMap<>());
+        query.multiselect(fields.stream().<Selection<?>>map(field -> columns.get(field).apply(source)).toList());
+        query.where(Stream.of(filter, restriction)
+                .map(condition -> condition.toPredicate(builder, source.root()))
+                .filter(Objects::nonNull)
+                .toArray(Predicate[]::new));
+        query.orderBy(builder.asc(source.root().get(ID)));
+        return entityManager.createQuery(query);
+    }
+
+    private static Map<String, Object> toMap(List<String> fields, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            int dot = field.indexOf('.');
+            if (dot < 0) {
+                row.put(field, tuple.get(i));
+            } else {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> nested = (Map<String, Object>) row.computeIfAbsent(field.substring(0, dot),
+                        key -> new LinkedHashMap<String, Object>());
+                nested.put(field.substring(dot + 1), tuple.get(i));
+            }
+        }
+        // A missing nested object (no owner) comes back from the outer join as all nulls.
+        row.replaceAll((field, value) -> value instanceof Map<?, ?> nested
+                && nested.values().stream().allMatch(Objects::isNull) ? null : value);
+        return row;
+    }
+
+    public interface Restriction<T> {
+        Predicate toPredicate(CriteriaBuilder builder, Root<T> root);
+    }
+
+    /**
+     * What a column is selected from. Joins are outer joins, created once however many columns use them.
+     */
+    public record Source<T>(CriteriaBuilder builder, CriteriaQuery<Tuple> query, Root<T> root,
+                            Map<String, Join<T, ?>> joins) {
+
+        public Join<T, ?> join(String attribute) {
+            return joins.computeIfAbsent(attribute, name -> root.join(name, JoinType.LEFT));
+        }
+
+        public <E> Expression<Long> count(Class<E> type, String attribute, Expression<?> value) {
+            Subquery<Long> subquery = query.subquery(Long.class);
+            Root<E> from = subquery.from(type);
+            return subquery.select(builder.count(from)).where(builder.equal(from.get(attribute), value));
+        }
+    }
+}
@@ -6,5 +6,7 @@ public class StatusCode {
     public static final int NOT_FOUND = 40004;
     public static final int UNAUTHORIZED = 40001;
     public static final int FORBIDDEN = 40003;
+    public static final int CONFLICT = 40009;
     public static final int INTERNAL_SERVER_ERROR = 50000;
+    public static final int SERVICE_UNAVAILABLE = 50003;
 }
@@ -0,0 +1,11 @@
+package com.simon.stunningfiesta.system.exception;
+
+/**
+ * A request the client has to fix, e.g. a malformed cursor or too many ids. Its message is shown to the client.
+ */
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        // Stackless like ObjectNotFoundException: an expected outcome answered with a 400.
+        super(message, null, false, false);
+    }
+}
@@ -3,7 +3,10 @@ package com.simon.stunningfiesta.system.exception;
 
 import com.simon.stunningfiesta.system.Result;
 import com.simon.stunningfiesta.system.StatusCode;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AccountStatusException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -16,6 +19,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -29,6 +33,13 @@ public class ExceptionHandleAdvice {
         return Result.fail(StatusCode.NOT_FOUND, ex.getMessage());
     }
 
+    // A concurrent write won, retried already where that is safe; the client has to read again and decide.
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    Result handleConcurrencyFailureException(ConcurrencyFailureException ex) {
+        return Result.fail(StatusCode.CONFLICT, "The resource was changed concurrently, please try again.");
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     Result handleValidationException(MethodArgumentNotValidException ex) {
@@ -42,6 +53,30 @@ public class ExceptionHandleAdvice {
                 .withData(errorMap);
     }
 
+    // E.g., a malformed pagination cursor; the message is written for the client.
+    @ExceptionHandler(BadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleBadRequestException(BadRequestException ex) {
+        return Result.fail(StatusCode.INVALID_ARGUMENT, "Provided arguments are invalid, see data for details.")
+                .withData(ex.getMessage());
+    }
+
+    // A query parameter of the wrong type, name the parameter rather than pass on the conversion error.
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        return Result.fail(StatusCode.INVALID_ARGUMENT, "Provided arguments are invalid, see data for details.")
+                .withData(String.format("Invalid value for %s", ex.getName()));
+    }
+
+    // Too many logins (or user saves) at once, shed the excess rather than let it queue up.
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    ResponseEntity<Result> handlePasswordHashingBusyException(PasswordHashingBusyException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Result.fail(StatusCode.SERVICE_UNAVAILABLE, ex.getMessage()));
+    }
+
     // UsernameNotFoundException.class -> username not found
     // BadCredentialsException.class -> password incorrect
     @ExceptionHandler({UsernameNotFoundException.class, BadCredentialsException.class})
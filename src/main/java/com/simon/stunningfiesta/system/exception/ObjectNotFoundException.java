@@ -2,6 +2,7 @@ package com.simon.stunningfiesta.system.exception;
 
 public class ObjectNotFoundException extends RuntimeException {
     public ObjectNotFoundException(String objectName, Object id) {
-        super(String.format("Could not find %s with Id %s :(", objectName, id));
+        // Stackless: it is an expected outcome answered with a 404, a stack trace would only cost its capture.
+        super(String.format("Could not find %s with Id %s :(", objectName, id), null, false, false);
     }
 }
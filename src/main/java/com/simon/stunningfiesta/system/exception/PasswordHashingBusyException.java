@@ -0,0 +1,13 @@
+package com.simon.stunningfiesta.system.exception;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * The password hashing pool is saturated. An authentication exception, so a login failing with it reaches the
+ * authentication entry point (and from there the controller advice) instead of the servlet container.
+ */
+public class PasswordHashingBusyException extends InternalAuthenticationServiceException {
+    public PasswordHashingBusyException() {
+        super("Too many password checks in progress, please try again later.");
+    }
+}
@@ -2,6 +2,7 @@ package com.simon.stunningfiesta.wizard;
 
 import com.simon.stunningfiesta.artifact.Artifact;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -14,7 +15,15 @@ public class Wizard implements Serializable {
     private Integer id;
     private String name;
 
+    @Version
+    private Integer version;
+
+    // Set while a purge deletes its artifacts in the background (see WizardPurger), readers no longer see the wizard.
+    private boolean deleted;
+
+    // Collections of up to 50 wizards are initialized together, e.g. while exporting.
     @OneToMany(cascade = {CascadeType.ALL}, mappedBy = "owner")
+    @BatchSize(size = 50)
     private List<Artifact> artifacts = new ArrayList<>();
 
     public Wizard() {
@@ -49,6 +58,22 @@ public class Wizard implements Serializable {
         return name;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
     public List<Artifact> getArtifacts() {
         return artifacts;
     }
@@ -1,46 +1,177 @@
 package com.simon.stunningfiesta.wizard;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simon.stunningfiesta.artifact.ArtifactBulkResult;
+import com.simon.stunningfiesta.artifact.ArtifactDto;
+import com.simon.stunningfiesta.artifact.ArtifactSummary;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.ConflictRetry;
+import com.simon.stunningfiesta.system.CursorPage;
+import com.simon.stunningfiesta.system.ETagged;
+import com.simon.stunningfiesta.system.MultiGetResult;
+import com.simon.stunningfiesta.system.NdjsonWriter;
 import com.simon.stunningfiesta.system.Result;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
 import com.simon.stunningfiesta.wizard.converters.WizardDtoToWizardConverter;
+import com.simon.stunningfiesta.wizard.converters.WizardSummaryToWizardDtoConverter;
 import com.simon.stunningfiesta.wizard.converters.WizardToWizardDtoConverter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("${api.endpoint.base-url}/wizards")
 public class WizardController {
+    static final int TOP_DEFAULT = 10;
+
+    static final int TOP_MAX = 100;
+
+    static final int SUGGEST_DEFAULT = 10;
+
+    static final int SUGGEST_MAX = 50;
+
     private final WizardService wizardService;
 
     private final WizardToWizardDtoConverter wizardToWizardDtoConverter;
 
     private final WizardDtoToWizardConverter wizardDtoToWizardConverter;
 
+    private final WizardSummaryToWizardDtoConverter wizardSummaryToWizardDtoConverter;
+
+    private final CatalogVersion catalogVersion;
+
+    private final CatalogCache catalogCache;
+
+    private final ConflictRetry conflictRetry;
+
+    private final ObjectMapper objectMapper;
+
     public WizardController(WizardService wizardService,
                             WizardToWizardDtoConverter wizardToWizardDtoConverter,
-                            WizardDtoToWizardConverter wizardDtoToWizardConverter) {
+                            WizardDtoToWizardConverter wizardDtoToWizardConverter,
+                            WizardSummaryToWizardDtoConverter wizardSummaryToWizardDtoConverter,
+                            CatalogVersion catalogVersion,
+                            CatalogCache catalogCache,
+                            ConflictRetry conflictRetry,
+                            ObjectMapper objectMapper) {
         this.wizardService = wizardService;
         this.wizardToWizardDtoConverter = wizardToWizardDtoConverter;
         this.wizardDtoToWizardConverter = wizardDtoToWizardConverter;
+        this.wizardSummaryToWizardDtoConverter = wizardSummaryToWizardDtoConverter;
+        this.catalogVersion = catalogVersion;
+        this.catalogCache = catalogCache;
+        this.conflictRetry = conflictRetry;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public Result findAllWizards() {
-        List<WizardDto> wizards = wizardService.findAll()
+    public Result findAllWizards(@RequestParam(required = false) String ids,
+                                 @RequestParam(required = false) String fields,
+                                 @RequestParam(required = false) String expand,
+                                 WebRequest webRequest) {
+        if (webRequest.checkNotModified(catalogVersion.etag())) {
+            return null;
+        }
+        if (ids != null) {
+            List<Integer> wizardIds = MultiGetResult.parseIds(ids);
+            return Result.success("Find Many Success")
+                    .withData(MultiGetResult.of(wizardIds, wizardService.findSummariesByIds(wizardIds),
+                            wizardSummaryToWizardDtoConverter::convert));
+        }
+        if (fields != null) {
+            return Result.success("Find All Success")
+                    .withData(wizardService.findFields(fields));
+        }
+        List<WizardDto> wizards = wizardService.findAllSummaries()
                 .stream()
-                .map(wizardToWizardDtoConverter::convert)
+                .map(wizardSummaryToWizardDtoConverter::convert)
                 .collect(Collectors.toList());
         return Result.success("Find All Success")
-                .withData(wizards);
+                .withData(expandsArtifacts(expand) ? withArtifacts(wizards) : wizards);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportAllWizards(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper, response.getOutputStream());
+        wizardService.exportAll(wizard -> ndjsonWriter.write(wizardSummaryToWizardDtoConverter.convert(wizard)));
+        ndjsonWriter.flush();
+    }
+
+    // Served from the in-memory leaderboard, no database access.
+    @GetMapping("/top")
+    public Result findTopWizards(@RequestParam(required = false) Integer n) {
+        return Result.success("Find Top Success")
+                .withData(wizardService.findTop(boundedCount("n", n, TOP_DEFAULT, TOP_MAX)));
+    }
+
+    // Served from the in-memory name index, no database access.
+    @GetMapping("/suggest")
+    public Result suggestWizards(@RequestParam String prefix,
+                                 @RequestParam(required = false) Integer limit) {
+        if (prefix.isBlank()) {
+            throw new BadRequestException("prefix must not be blank.");
+        }
+        return Result.success("Suggest Success")
+                .withData(wizardService.suggest(prefix, boundedCount("limit", limit, SUGGEST_DEFAULT, SUGGEST_MAX)));
     }
 
     @GetMapping("/{wizardId}")
-    public Result findWizardById(@PathVariable Integer wizardId) {
-        Wizard wizard = wizardService.findById(wizardId);
+    public Result findWizardById(@PathVariable Integer wizardId,
+                                 @RequestParam(required = false) String fields,
+                                 @RequestParam(required = false) String expand,
+                                 WebRequest webRequest) {
+        if (fields != null) {
+            // Sparse reads skip the DTO cache, the version alone is enough for the ETag.
+            if (webRequest.checkNotModified(wizardService.findETagById(wizardId))) {
+                return null;
+            }
+            return Result.success("Find Wizard Success")
+                    .withData(wizardService.findFieldsById(wizardId, fields));
+        }
+        if (expandsArtifacts(expand)) {
+            // Embedded artifacts change without the wizard's version, so the catalog version tags the response.
+            if (webRequest.checkNotModified(catalogVersion.etag())) {
+                return null;
+            }
+            WizardDto wizard = wizardSummaryToWizardDtoConverter.convert(wizardService.findSummaryById(wizardId));
+            return Result.success("Find Wizard Success")
+                    .withData(withArtifacts(List.of(wizard)).get(0));
+        }
+        boolean conditional = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null;
+        if (conditional && webRequest.checkNotModified(wizardService.findETagById(wizardId))) {
+            return null;
+        }
+        ETagged<WizardDto> wizard = catalogCache.dto(CatalogCache.WIZARD_DTOS, wizardId, () -> {
+            WizardSummary summary = wizardService.findSummaryById(wizardId);
+            return new ETagged<>(wizardSummaryToWizardDtoConverter.convert(summary), summary.etag());
+        });
+        if (!conditional) {
+            webRequest.checkNotModified(wizard.etag());
+        }
         return Result.success("Find Wizard Success")
-                .withData(wizardToWizardDtoConverter.convert(wizard));
+                .withData(wizard.value());
+    }
+
+    // Keyset pages of a wizard's artifacts, for wizards owning too many to expand inline.
+    @GetMapping("/{wizardId}/artifacts")
+    public Result findWizardArtifacts(@PathVariable Integer wizardId,
+                                      @RequestParam(required = false) String after,
+                                      @RequestParam(required = false) Integer limit) {
+        int pageSize = CursorPage.normalizeLimit(limit);
+        List<ArtifactSummary> artifacts = wizardService.findArtifactPage(wizardId, CursorPage.decodeCursor(after), pageSize);
+        Integer lastId = artifacts.isEmpty() ? null : artifacts.get(artifacts.size() - 1).id();
+        return Result.success("Find Page Success")
+                .withData(CursorPage.of(artifacts.stream().map(WizardController::toOwnedArtifact).toList(), pageSize, lastId));
     }
 
     @PostMapping
@@ -54,21 +185,85 @@ public class WizardController {
     @PutMapping("/{wizardId}")
     public Result updateWizardById(@PathVariable Integer wizardId,
                                    @Valid @RequestBody WizardDto wizardDto) {
-        Wizard updatedWizard = wizardService.update(wizardId, wizardDtoToWizardConverter.convert(wizardDto));
-        WizardDto updatedWizardDto = wizardToWizardDtoConverter.convert(updatedWizard);
+        wizardService.update(wizardId, wizardDtoToWizardConverter.convert(wizardDto));
+        // The summary counts the artifacts in its query, converting the entity would load its artifacts collection.
+        WizardDto updatedWizardDto = wizardSummaryToWizardDtoConverter.convert(wizardService.findSummaryById(wizardId));
         return Result.success("Update Wizard Success")
                 .withData(updatedWizardDto);
     }
 
     @DeleteMapping("/{wizardId}")
-    public Result deleteWizardById(@PathVariable Integer wizardId) {
-        wizardService.deleteById(wizardId);
+    public Result deleteWizardById(@PathVariable Integer wizardId,
+                                   @RequestParam(defaultValue = "CASCADE") WizardDeleteMode mode) {
+        wizardService.deleteById(wizardId, mode);
+        if (mode == WizardDeleteMode.PURGE) {
+            // The artifacts are still being deleted, the progress can be followed at /{wizardId}/purge.
+            return Result.success("Delete Wizard Accepted")
+                    .withData(wizardService.findPurge(wizardId));
+        }
         return Result.success("Delete Wizard Success");
     }
 
+    @GetMapping("/{wizardId}/purge")
+    public Result findWizardPurge(@PathVariable Integer wizardId) {
+        return Result.success("Find Purge Success")
+                .withData(wizardService.findPurge(wizardId));
+    }
+
     @PutMapping("/{wizardId}/artifacts/{artifactId}")
     public Result assignArtifact(@PathVariable Integer wizardId, @PathVariable Integer artifactId) {
-        wizardService.assignArtifact(wizardId, artifactId);
+        // Concurrent transfers of the same artifact are retried with fresh reads, each attempt is a new transaction.
+        conflictRetry.execute("assign-artifact", () -> {
+            wizardService.assignArtifact(wizardId, artifactId);
+            return null;
+        });
         return Result.success("Assign Artifact Success");
     }
+
+    // Moves every listed artifact to the wizard in one transaction.
+    @PutMapping("/{wizardId}/artifacts")
+    public Result assignArtifacts(@PathVariable Integer wizardId, @RequestBody List<Integer> artifactIds) {
+        return Result.success("Assign Artifacts Success")
+                .withData(new ArtifactBulkResult(conflictRetry.execute("assign-artifact",
+                        () -> wizardService.assignArtifacts(wizardId, artifactIds))));
+    }
+
+    // Absent means the default, above the maximum is cut to it.
+    private static int boundedCount(String name, Integer value, int defaultValue, int max) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value <= 0) {
+            throw new BadRequestException(name + " must be positive.");
+        }
+        return Math.min(value, max);
+    }
+
+    private static boolean expandsArtifacts(String expand) {
+        if (expand == null) {
+            return false;
+        }
+        if (!"artifacts".equals(expand.trim())) {
+            throw new BadRequestException(String.format("Unknown expand %s, expected artifacts", expand));
+        }
+        return true;
+    }
+
+    // Fetches the artifacts of all the wizards at once, not per wizard.
+    private List<WizardDto> withArtifacts(List<WizardDto> wizards) {
+        Map<Integer, List<ArtifactSummary>> artifactsByOwnerId =
+                wizardService.findArtifactsByOwnerIds(wizards.stream().map(WizardDto::id).toList());
+        return wizards.stream()
+                .map(wizard -> wizard.withArtifacts(artifactsByOwnerId.getOrDefault(wizard.id(), List.of())
+                        .stream()
+                        .map(WizardController::toOwnedArtifact)
+                        .toList()))
+                .toList();
+    }
+
+    // The owner is left out, it is the wizard the artifact is listed under.
+    private static ArtifactDto toOwnedArtifact(ArtifactSummary artifact) {
+        return new ArtifactDto(artifact.id(), artifact.name(), artifact.description(), artifact.imageUrl(), null,
+                artifact.thumbnailUrl());
+    }
 }
@@ -0,0 +1,13 @@
+package com.simon.stunningfiesta.wizard;
+
+/**
+ * What happens to a wizard's artifacts when the wizard is deleted.
+ */
+public enum WizardDeleteMode {
+    // The artifacts are deleted along with the wizard, with one DELETE.
+    CASCADE,
+    // The artifacts are kept without an owner, with one UPDATE.
+    UNASSIGN,
+    // The wizard is only marked deleted, its artifacts are deleted in batches in the background (see WizardPurger).
+    PURGE
+}
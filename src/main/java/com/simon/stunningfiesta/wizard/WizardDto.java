@@ -1,10 +1,25 @@
 package com.simon.stunningfiesta.wizard;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.simon.stunningfiesta.artifact.ArtifactDto;
 import jakarta.validation.constraints.NotEmpty;
 
+import java.util.List;
+
 public record WizardDto(Integer id,
                         @NotEmpty(message = "name is required")
                         String name,
-                        Integer numbersOfArtifacts) {
+                        Integer numbersOfArtifacts,
+                        // Only filled with ?expand=artifacts.
+                        @JsonInclude(JsonInclude.Include.NON_NULL)
+                        List<ArtifactDto> artifacts) {
+
+    public WizardDto(Integer id, String name, Integer numbersOfArtifacts) {
+        this(id, name, numbersOfArtifacts, null);
+    }
+
+    public WizardDto withArtifacts(List<ArtifactDto> artifacts) {
+        return new WizardDto(id, name, numbersOfArtifacts, artifacts);
+    }
 }
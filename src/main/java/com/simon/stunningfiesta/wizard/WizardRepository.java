@@ -1,6 +1,71 @@
 package com.simon.stunningfiesta.wizard;
 
+import jakarta.persistence.QueryHint;
+import com.simon.stunningfiesta.wizard.suggest.WizardSuggestion;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface WizardRepository extends JpaRepository<Wizard, Integer> {
+    // Scrolls the summaries with a server side cursor for the NDJSON export; the count is a correlated subquery so
+    // that rows flow without grouping the whole table first.
+    @Query("select new com.simon.stunningfiesta.wizard.WizardSummary("
+            + "w.id, w.name, w.version, (select count(a) from Artifact a where a.owner = w)) "
+            + "from Wizard w where w.deleted = false order by w.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<WizardSummary> streamAllSummaries();
+
+    @Query("select new com.simon.stunningfiesta.wizard.WizardSummary("
+            + "w.id, w.name, w.version, (select count(a) from Artifact a where a.owner = w)) "
+            + "from Wizard w where w.id = :id and w.deleted = false")
+    Optional<WizardSummary> findSummaryById(Integer id);
+
+    // Counts with one grouped join instead of initializing each wizard's artifacts collection.
+    @Query("select new com.simon.stunningfiesta.wizard.WizardSummary(w.id, w.name, w.version, count(a)) "
+            + "from Wizard w left join w.artifacts a where w.deleted = false "
+            + "group by w.id, w.name, w.version order by w.id")
+    List<WizardSummary> findAllSummaries();
+
+    @Query("select new com.simon.stunningfiesta.wizard.suggest.WizardSuggestion(w.id, w.name) from Wizard w "
+            + "where w.deleted = false")
+    List<WizardSuggestion> findAllNames();
+
+    @Query("select new com.simon.stunningfiesta.wizard.WizardSummary(w.id, w.name, w.version, count(a)) "
+            + "from Wizard w left join w.artifacts a where w.id in :ids and w.deleted = false "
+            + "group by w.id, w.name, w.version")
+    List<WizardSummary> findSummariesByIds(Collection<Integer> ids);
+
+    @Query("select w.version from Wizard w where w.id = :id and w.deleted = false")
+    Optional<Integer> findVersionById(Integer id);
+
+    @Query("select count(w) > 0 from Wizard w where w.id = :id and w.deleted = false")
+    boolean existsActiveById(Integer id);
+
+    @Query("select w.id from Wizard w where w.deleted = true")
+    List<Integer> findDeletedIds();
+
+    @Query("select w.id from Wizard w where w.id in :ids and w.deleted = true order by w.id")
+    List<Integer> findDeletedIdsByIds(Collection<Integer> ids);
+
+    // Hides the wizard from every read, and locks its row until the transaction ends. Returns 0 if there is none.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Wizard w set w.deleted = true, w.version = w.version + 1 where w.id = :id and w.deleted = false")
+    int markDeleted(Integer id);
+
+    // Deletes the row alone, without the cascade to artifacts a repository delete would load them for.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Wizard w where w.id = :id")
+    int deleteRowById(Integer id);
+
+    // Bumps the version (and so the ETag) of wizards whose artifacts were changed by a bulk statement.
+    @Modifying(flushAutomatically = true)
+    @Query("update Wizard w set w.version = w.version + 1 where w.id in :ids")
+    int incrementVersions(Collection<Integer> ids);
 }
@@ -1,60 +1,339 @@
 package com.simon.stunningfiesta.wizard;
 
 import com.simon.stunningfiesta.artifact.Artifact;
+import com.simon.stunningfiesta.artifact.ArtifactRef;
 import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import com.simon.stunningfiesta.artifact.ArtifactSummary;
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeEntityType;
+import com.simon.stunningfiesta.change.ChangeOperation;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.AfterCommit;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.NotFoundCache;
+import com.simon.stunningfiesta.system.SparseFields;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import com.simon.stunningfiesta.wizard.leaderboard.WizardLeaderboard;
+import com.simon.stunningfiesta.wizard.leaderboard.WizardRank;
+import com.simon.stunningfiesta.wizard.purge.WizardPurge;
+import com.simon.stunningfiesta.wizard.purge.WizardPurger;
+import com.simon.stunningfiesta.wizard.suggest.WizardNameIndex;
+import com.simon.stunningfiesta.wizard.suggest.WizardSuggestion;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class WizardService {
+    private static final int EXPAND_CHUNK_SIZE = 1000;
+
+    private static final int MULTI_GET_CHUNK_SIZE = 100;
+
+    private static final SparseFields<Wizard> FIELDS = new SparseFields<>(Wizard.class)
+            .where((builder, root) -> builder.isFalse(root.get("deleted")))
+            .with("name", source -> source.root().get("name"))
+            .with("numbersOfArtifacts", source -> source.count(Artifact.class, "owner", source.root()));
+
     private final WizardRepository wizardRepository;
 
     private final ArtifactRepository artifactRepository;
 
-    public WizardService(WizardRepository wizardRepository, ArtifactRepository artifactRepository) {
+    private final EntityManager entityManager;
+
+    private final ArtifactSearchIndex artifactSearchIndex;
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final CatalogVersion catalogVersion;
+
+    private final CatalogCache catalogCache;
+
+    private final ChangeService changeService;
+
+    private final WizardLeaderboard wizardLeaderboard;
+
+    private final WizardNameIndex wizardNameIndex;
+
+    private final WizardPurger wizardPurger;
+
+    private final NotFoundCache notFoundCache;
+
+    public WizardService(WizardRepository wizardRepository,
+                         ArtifactRepository artifactRepository,
+                         EntityManager entityManager,
+                         ArtifactSearchIndex artifactSearchIndex,
+                         ImageBlobStore imageBlobStore,
+                         CatalogVersion catalogVersion,
+                         CatalogCache catalogCache,
+                         ChangeService changeService,
+                         WizardLeaderboard wizardLeaderboard,
+                         WizardNameIndex wizardNameIndex,
+                         WizardPurger wizardPurger,
+                         NotFoundCache notFoundCache) {
         this.wizardRepository = wizardRepository;
         this.artifactRepository = artifactRepository;
+        this.entityManager = entityManager;
+        this.artifactSearchIndex = artifactSearchIndex;
+        this.imageBlobStore = imageBlobStore;
+        this.catalogVersion = catalogVersion;
+        this.catalogCache = catalogCache;
+        this.changeService = changeService;
+        this.wizardLeaderboard = wizardLeaderboard;
+        this.wizardNameIndex = wizardNameIndex;
+        this.wizardPurger = wizardPurger;
+        this.notFoundCache = notFoundCache;
+    }
+
+    static String etag(Integer id, Integer version) {
+        return "\"wizard-" + id + "-" + version + "\"";
     }
 
     public void deleteById(Integer id) {
-        findById(id);
-        wizardRepository.deleteById(id);
+        deleteById(id, WizardDeleteMode.CASCADE);
+    }
+
+    /**
+     * Deletes the wizard with set-based statements, neither the wizard's artifacts collection nor its artifacts are
+     * loaded, only their ids. With PURGE the wizard is only marked deleted here, the artifacts and then the wizard row
+     * are deleted in batches by the WizardPurger once this transaction has committed.
+     */
+    public void deleteById(Integer id, WizardDeleteMode mode) {
+        // Also locks the row, so no transfer to the wizard can commit in between.
+        if (wizardRepository.markDeleted(id) == 0) {
+            throw new ObjectNotFoundException("wizard", id);
+        }
+        AfterCommit.run(() -> {
+            wizardLeaderboard.remove(id);
+            wizardNameIndex.remove(id);
+        });
+        catalogVersion.increment();
+        if (mode == WizardDeleteMode.PURGE) {
+            catalogCache.evictWizard(id);
+            changeService.record(ChangeEntityType.WIZARD, ChangeOperation.DELETE, id);
+            AfterCommit.run(() -> wizardPurger.start(id));
+            return;
+        }
+
+        List<Integer> artifactIds = artifactRepository.findIdsByOwnerIds(List.of(id));
+        if (mode == WizardDeleteMode.UNASSIGN) {
+            artifactRepository.unassignAllByOwnerId(id);
+            changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, artifactIds);
+        } else {
+            artifactRepository.deleteAllByOwnerId(id);
+            AfterCommit.run(() -> artifactIds.forEach(artifactId -> {
+                artifactSearchIndex.remove(artifactId);
+                imageBlobStore.remove(artifactId);
+            }));
+            changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, artifactIds);
+        }
+        wizardRepository.deleteRowById(id);
+        catalogCache.evictWizard(id);
+        catalogCache.evictArtifacts(artifactIds);
+        changeService.record(ChangeEntityType.WIZARD, ChangeOperation.DELETE, id);
+    }
+
+    public WizardPurge findPurge(Integer id) {
+        return wizardPurger.findByWizardId(id);
     }
 
     public Wizard save(Wizard newWizard) {
-        return wizardRepository.save(newWizard);
+        Wizard savedWizard = wizardRepository.save(newWizard);
+        Integer id = savedWizard.getId();
+        String name = savedWizard.getName();
+        // Counted rather than read from the artifacts collection, which a merge would load.
+        int numberOfArtifacts = (int) artifactRepository.countByOwnerId(id);
+        AfterCommit.run(() -> {
+            wizardLeaderboard.put(id, name, numberOfArtifacts);
+            wizardNameIndex.index(id, name);
+        });
+        notFoundCache.forget("wizard", id);
+        changeService.record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, savedWizard.getId());
+        catalogVersion.increment();
+        return savedWizard;
     }
 
     public List<Wizard> findAll() {
         return wizardRepository.findAll();
     }
 
-    public Wizard findById(Integer id) {
-        return wizardRepository.findById(id)
+    public List<WizardSummary> findAllSummaries() {
+        return wizardRepository.findAllSummaries();
+    }
+
+    public List<Map<String, Object>> findFields(String fields) {
+        return FIELDS.findAll(entityManager, FIELDS.parse(fields), null, null);
+    }
+
+    public Map<String, Object> findFieldsById(Integer id, String fields) {
+        return FIELDS.findById(entityManager, FIELDS.parse(fields), id)
                 .orElseThrow(() -> new ObjectNotFoundException("wizard", id));
     }
 
+    public void exportAll(Consumer<WizardSummary> consumer) {
+        try (Stream<WizardSummary> wizards = wizardRepository.streamAllSummaries()) {
+            wizards.forEach(consumer);
+        }
+    }
+
+    /**
+     * Returns the artifacts of the given wizards by owner id, with one IN query per EXPAND_CHUNK_SIZE wizards.
+     */
+    public Map<Integer, List<ArtifactSummary>> findArtifactsByOwnerIds(List<Integer> ownerIds) {
+        Map<Integer, List<ArtifactSummary>> artifactsByOwnerId = new HashMap<>();
+        for (int from = 0; from < ownerIds.size(); from += EXPAND_CHUNK_SIZE) {
+            List<Integer> chunk = ownerIds.subList(from, Math.min(from + EXPAND_CHUNK_SIZE, ownerIds.size()));
+            artifactRepository.findSummariesByOwnerIds(chunk).forEach(artifact ->
+                    artifactsByOwnerId.computeIfAbsent(artifact.ownerId(), ownerId -> new ArrayList<>()).add(artifact));
+        }
+        return artifactsByOwnerId;
+    }
+
+    public List<ArtifactSummary> findArtifactPage(Integer id, Integer afterId, int limit) {
+        if (!wizardRepository.existsActiveById(id)) {
+            throw new ObjectNotFoundException("wizard", id);
+        }
+        return artifactRepository.findSummariesByOwnerAfter(id, afterId, PageRequest.ofSize(limit));
+    }
+
+    public List<WizardRank> findTop(int n) {
+        return wizardLeaderboard.top(n);
+    }
+
+    public List<WizardSuggestion> suggest(String prefix, int limit) {
+        return wizardNameIndex.suggest(prefix, limit);
+    }
+
+    public Wizard findById(Integer id) {
+        return notFoundCache.find("wizard", id,
+                () -> wizardRepository.findById(id).filter(wizard -> !wizard.isDeleted()));
+    }
+
+    public WizardSummary findSummaryById(Integer id) {
+        return catalogCache.get(CatalogCache.WIZARDS, id,
+                () -> notFoundCache.find("wizard", id, () -> wizardRepository.findSummaryById(id)));
+    }
+
+    /**
+     * Finds many wizards at once: cached summaries first, the rest with IN queries. Missing ids are left out.
+     */
+    public Map<Integer, WizardSummary> findSummariesByIds(List<Integer> ids) {
+        return catalogCache.getAll(CatalogCache.WIZARDS, ids, MULTI_GET_CHUNK_SIZE,
+                wizardRepository::findSummariesByIds, WizardSummary::id);
+    }
+
+    public String findETagById(Integer id) {
+        return notFoundCache.find("wizard", id,
+                () -> wizardRepository.findVersionById(id).map(version -> etag(id, version)));
+    }
+
     public Wizard update(Integer id, Wizard newWizard) {
         return wizardRepository.findById(id)
+                .filter(wizard -> !wizard.isDeleted())
                 .map(wizard -> {
                     wizard.setName(newWizard.getName());
+                    String name = wizard.getName();
+                    AfterCommit.run(() -> {
+                        wizardLeaderboard.rename(id, name);
+                        wizardNameIndex.index(id, name);
+                    });
+                    // Only the wizard's own row changes, its artifacts read the new name from the wizards cache.
+                    catalogCache.evictWizard(id);
+                    changeService.record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, id);
+                    catalogVersion.increment();
                     return wizardRepository.save(wizard);
                 })
                 .orElseThrow(() -> new ObjectNotFoundException("wizard", id));
     }
 
     public void assignArtifact(Integer wizardId, Integer artifactId) {
-        Artifact artifactToBeAssigned = artifactRepository.findById(artifactId)
-                .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
-        Wizard wizard = findById(wizardId);
+        assignArtifacts(wizardId, List.of(artifactId));
+    }
+
+    /**
+     * Moves the artifacts to the wizard with an UPDATE of their owner column per previous owner, neither owner's
+     * artifacts collection is loaded. Either all artifacts move or none, returns how many changed owner.
+     * If another transaction moved one of them in the meantime it throws an OptimisticLockingFailureException,
+     * the caller may retry with fresh reads (see ConflictRetry).
+     */
+    public int assignArtifacts(Integer wizardId, List<Integer> artifactIds) {
+        if (artifactIds == null || artifactIds.isEmpty()) {
+            throw new BadRequestException("artifactIds must not be empty.");
+        }
+        List<ArtifactRef> refs = artifactRepository.findRefsByIds(artifactIds);
+        Set<Integer> foundIds = refs.stream().map(ArtifactRef::id).collect(Collectors.toSet());
+        artifactIds.stream()
+                .filter(artifactId -> !foundIds.contains(artifactId))
+                .findFirst()
+                .ifPresent(artifactId -> {
+                    throw new ObjectNotFoundException("artifact", artifactId);
+                });
+        if (!wizardRepository.existsActiveById(wizardId)) {
+            throw new ObjectNotFoundException("wizard", wizardId);
+        }
+        // Keyed in id order, the null key (unowned artifacts) first, so concurrent transfers lock rows in the same order.
+        Map<Integer, List<Integer>> movingIdsByOwner = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        refs.stream()
+                .filter(ref -> !wizardId.equals(ref.ownerId()))
+                .forEach(ref -> movingIdsByOwner.computeIfAbsent(ref.ownerId(), ownerId -> new ArrayList<>()).add(ref.id()));
+        if (movingIdsByOwner.isEmpty()) {
+            return 0;
+        }
+        // The artifacts of a wizard being purged are deleted with it, they can't be moved out from under the purge.
+        List<Integer> previousOwnerIds = movingIdsByOwner.keySet().stream().filter(Objects::nonNull).toList();
+        if (!previousOwnerIds.isEmpty()) {
+            wizardRepository.findDeletedIdsByIds(previousOwnerIds).stream()
+                    .findFirst()
+                    .ifPresent(ownerId -> {
+                        throw new ObjectNotFoundException("artifact", movingIdsByOwner.get(ownerId).get(0));
+                    });
+        }
+        List<Integer> movingIds = movingIdsByOwner.values().stream().flatMap(List::stream).toList();
+        // Both sides' number of artifacts change, so must their versions (and ETags). Their other artifacts take the
+        // owner from the wizard when read, they don't change.
+        Set<Integer> ownerIds = new LinkedHashSet<>();
+        ownerIds.add(wizardId);
+        refs.stream().map(ArtifactRef::ownerId).filter(Objects::nonNull).forEach(ownerIds::add);
 
-        Optional.of(artifactToBeAssigned.getOwner())
-                .ifPresent(ownerWilBeRemoved -> ownerWilBeRemoved.removeArtifact(artifactToBeAssigned));
-        wizard.addArtifacts(artifactToBeAssigned);
+        Wizard wizard = entityManager.getReference(Wizard.class, wizardId);
+        movingIdsByOwner.forEach((ownerId, ids) -> {
+            if (artifactRepository.updateOwnerByIds(ids, ownerId, wizard) != ids.size()) {
+                throw new OptimisticLockingFailureException(
+                        String.format("Artifacts %s changed owner concurrently", ids));
+            }
+        });
+        wizardRepository.incrementVersions(ownerIds);
+        catalogCache.evictWizards(ownerIds);
+        catalogCache.evictArtifacts(movingIds);
+        changeService.record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, ownerIds);
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, movingIds);
+        AfterCommit.run(() -> {
+            movingIdsByOwner.forEach((ownerId, ids) -> {
+                if (ownerId != null) {
+                    wizardLeaderboard.adjust(ownerId, -ids.size());
+                }
+            });
+            wizardLeaderboard.adjust(wizardId, movingIds.size());
+        });
+        catalogVersion.increment();
+        return movingIds.size();
     }
 }
@@ -0,0 +1,14 @@
+package com.simon.stunningfiesta.wizard;
+
+/**
+ * Read model of a wizard, the artifact count comes from the query instead of loading the artifacts collection.
+ */
+public record WizardSummary(Integer id,
+                            String name,
+                            Integer version,
+                            Long numberOfArtifacts) {
+
+    public String etag() {
+        return WizardService.etag(id, version);
+    }
+}
@@ -0,0 +1,17 @@
+package com.simon.stunningfiesta.wizard.converters;
+
+import com.simon.stunningfiesta.wizard.WizardDto;
+import com.simon.stunningfiesta.wizard.WizardSummary;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WizardSummaryToWizardDtoConverter implements Converter<WizardSummary, WizardDto> {
+    @Override
+    public WizardDto convert(WizardSummary source) {
+        return new WizardDto(
+                source.id(),
+                source.name(),
+                source.numberOfArtifacts().intValue());
+    }
+}
@@ -0,0 +1,137 @@
+package com.simon.stunningfiesta.wizard.leaderboard;
+
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import com.simon.stunningfiesta.wizard.WizardSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Wizards ordered by their number of artifacts, most first, ties by id.
+ * It is built once at startup and then kept up to date by WizardService and ArtifactService with O(log n) changes,
+ * so the top N is read without touching the database.
+ */
+@Component
+public class WizardLeaderboard {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WizardLeaderboard.class);
+
+    private static final Comparator<WizardRank> RANK_ORDER = Comparator
+            .comparingInt(WizardRank::numbersOfArtifacts).reversed()
+            .thenComparing(WizardRank::id);
+
+    private final WizardRepository wizardRepository;
+
+    private final TreeSet<WizardRank> ranking = new TreeSet<>(RANK_ORDER);
+
+    private final Map<Integer, WizardRank> ranks = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public WizardLeaderboard(WizardRepository wizardRepository) {
+        this.wizardRepository = wizardRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<WizardSummary> summaries = wizardRepository.findAllSummaries();
+        lock.writeLock().lock();
+        try {
+            ranking.clear();
+            ranks.clear();
+            summaries.forEach(summary -> putUnderLock(
+                    new WizardRank(summary.id(), summary.name(), summary.numberOfArtifacts().intValue())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.debug("Wizard leaderboard built with {} wizards", summaries.size());
+    }
+
+    public void put(Integer id, String name, int numbersOfArtifacts) {
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(id);
+            putUnderLock(new WizardRank(id, name, numbersOfArtifacts));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rename(Integer id, String name) {
+        lock.writeLock().lock();
+        try {
+            WizardRank rank = removeUnderLock(id);
+            if (rank != null) {
+                putUnderLock(rank.withName(name));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds {@code delta} (possibly negative) to the wizard's number of artifacts, unknown wizards are ignored.
+     * Deltas commute, so transactions may apply theirs in any order once committed.
+     */
+    public void adjust(Integer id, int delta) {
+        lock.writeLock().lock();
+        try {
+            WizardRank rank = removeUnderLock(id);
+            if (rank != null) {
+                putUnderLock(rank.withNumbersOfArtifacts(Math.max(0, rank.numbersOfArtifacts() + delta)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code n} wizards with the most artifacts, most first.
+     */
+    public List<WizardRank> top(int n) {
+        lock.readLock().lock();
+        try {
+            List<WizardRank> top = new ArrayList<>(Math.min(n, ranking.size()));
+            Iterator<WizardRank> iterator = ranking.iterator();
+            while (top.size() < n && iterator.hasNext()) {
+                top.add(iterator.next());
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putUnderLock(WizardRank rank) {
+        ranks.put(rank.id(), rank);
+        ranking.add(rank);
+    }
+
+    private WizardRank removeUnderLock(Integer id) {
+        WizardRank removed = ranks.remove(id);
+        if (removed != null) {
+            ranking.remove(removed);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,12 @@
+package com.simon.stunningfiesta.wizard.leaderboard;
+
+public record WizardRank(Integer id, String name, int numbersOfArtifacts) {
+
+    WizardRank withNumbersOfArtifacts(int numbersOfArtifacts) {
+        return new WizardRank(id, name, numbersOfArtifacts);
+    }
+
+    WizardRank withName(String name) {
+        return new WizardRank(id, name, numbersOfArtifacts);
+    }
+}
@@ -0,0 +1,23 @@
+package com.simon.stunningfiesta.wizard.purge;
+
+/**
+ * Progress of a background purge, {@code total} is the number of artifacts the wizard had when it started.
+ */
+public record WizardPurge(Integer wizardId, State state, long total, long removed) {
+
+    public enum State {
+        RUNNING, DONE, FAILED
+    }
+
+    static WizardPurge running(Integer wizardId, long total) {
+        return new WizardPurge(wizardId, State.RUNNING, total, 0);
+    }
+
+    WizardPurge withRemoved(long count) {
+        return new WizardPurge(wizardId, state, total, removed + count);
+    }
+
+    WizardPurge withState(State state) {
+        return new WizardPurge(wizardId, state, total, removed);
+    }
+}
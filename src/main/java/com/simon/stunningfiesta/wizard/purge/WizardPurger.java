@@ -0,0 +1,186 @@
+package com.simon.stunningfiesta.wizard.purge;
+
+import com.simon.stunningfiesta.artifact.ArtifactRef;
+import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeEntityType;
+import com.simon.stunningfiesta.change.ChangeOperation;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.AfterCommit;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes the artifacts of wizards marked deleted, in batches of api.purge.batch-size, one short transaction per
+ * batch, and finally the wizard row itself. Purges run one after the other on a single background thread, purges
+ * interrupted by a shutdown are resumed at startup.
+ */
+@Component
+public class WizardPurger implements DisposableBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WizardPurger.class);
+
+    private final WizardRepository wizardRepository;
+
+    private final ArtifactRepository artifactRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ArtifactSearchIndex artifactSearchIndex;
+
+    private final ImageBlobStore imageBlobStore;
+
+    private final CatalogCache catalogCache;
+
+    private final CatalogVersion catalogVersion;
+
+    private final ChangeService changeService;
+
+    private final int batchSize;
+
+    private final Map<Integer, WizardPurge> purges = new ConcurrentHashMap<>();
+
+    private final Executor executor;
+
+    @Autowired
+    public WizardPurger(WizardRepository wizardRepository,
+                        ArtifactRepository artifactRepository,
+                        TransactionTemplate transactionTemplate,
+                        ArtifactSearchIndex artifactSearchIndex,
+                        ImageBlobStore imageBlobStore,
+                        CatalogCache catalogCache,
+                        CatalogVersion catalogVersion,
+                        ChangeService changeService,
+                        @Value("${api.purge.batch-size:500}") int batchSize) {
+        this(wizardRepository, artifactRepository, transactionTemplate, artifactSearchIndex, imageBlobStore,
+                catalogCache, catalogVersion, changeService, batchSize, Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "wizard-purger");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * Runs the purges on the given executor instead of a background thread, a direct one (Runnable::run) purges
+     * before start returns.
+     */
+    public WizardPurger(WizardRepository wizardRepository,
+                        ArtifactRepository artifactRepository,
+                        TransactionTemplate transactionTemplate,
+                        ArtifactSearchIndex artifactSearchIndex,
+                        ImageBlobStore imageBlobStore,
+                        CatalogCache catalogCache,
+                        CatalogVersion catalogVersion,
+                        ChangeService changeService,
+                        int batchSize,
+                        Executor executor) {
+        this.wizardRepository = wizardRepository;
+        this.artifactRepository = artifactRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.artifactSearchIndex = artifactSearchIndex;
+        this.imageBlobStore = imageBlobStore;
+        this.catalogCache = catalogCache;
+        this.catalogVersion = catalogVersion;
+        this.changeService = changeService;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        wizardRepository.findDeletedIds().forEach(this::start);
+    }
+
+    /**
+     * Starts purging a wizard already marked deleted, unless it is being purged already.
+     */
+    public void start(Integer wizardId) {
+        WizardPurge purge = WizardPurge.running(wizardId, artifactRepository.countByOwnerId(wizardId));
+        WizardPurge current = purges.compute(wizardId, (id, existing) ->
+                existing != null && existing.state() == WizardPurge.State.RUNNING ? existing : purge);
+        if (current == purge) {
+            executor.execute(() -> purge(wizardId));
+        }
+    }
+
+    public WizardPurge findByWizardId(Integer wizardId) {
+        return Optional.ofNullable(purges.get(wizardId))
+                .orElseThrow(() -> new ObjectNotFoundException("wizard purge", wizardId));
+    }
+
+    private void purge(Integer wizardId) {
+        try {
+            Integer deleted;
+            while ((deleted = transactionTemplate.execute(status -> purgeBatch(wizardId))) != null) {
+                int count = deleted;
+                purges.computeIfPresent(wizardId, (id, purge) -> purge.withRemoved(count));
+            }
+            purges.computeIfPresent(wizardId, (id, purge) -> purge.withState(WizardPurge.State.DONE));
+            LOGGER.debug("Purged wizard {}", wizardId);
+        } catch (RuntimeException ex) {
+            purges.computeIfPresent(wizardId, (id, purge) -> purge.withState(WizardPurge.State.FAILED));
+            LOGGER.warn("Purging wizard {} failed, it is resumed at the next startup.", wizardId, ex);
+        }
+    }
+
+    // Deletes the next batch of artifacts, or the wizard itself once none are left. Returns how many artifacts it
+    // deleted, null once it deleted the wizard.
+    private Integer purgeBatch(Integer wizardId) {
+        List<Integer> batch = artifactRepository.findIdsByOwnerId(wizardId, PageRequest.ofSize(batchSize));
+        if (batch.isEmpty()) {
+            wizardRepository.deleteRowById(wizardId);
+            return null;
+        }
+        // Only rows the wizard still owns go, an artifact a concurrent transfer moved away since the read stays.
+        List<Integer> ids = artifactRepository.deleteAllByIdsAndOwnerId(batch, wizardId) < batch.size()
+                ? withoutRemaining(batch)
+                : batch;
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        AfterCommit.run(() -> ids.forEach(artifactId -> {
+            artifactSearchIndex.remove(artifactId);
+            imageBlobStore.remove(artifactId);
+        }));
+        catalogCache.evictArtifacts(ids);
+        changeService.record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, ids);
+        catalogVersion.increment();
+        return ids.size();
+    }
+
+    private List<Integer> withoutRemaining(List<Integer> ids) {
+        Set<Integer> remainingIds = artifactRepository.findRefsByIds(ids).stream()
+                .map(ArtifactRef::id)
+                .collect(Collectors.toSet());
+        return ids.stream().filter(artifactId -> !remainingIds.contains(artifactId)).toList();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.simon.stunningfiesta.wizard.suggest;
+
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Sorted in-memory index over wizard names for as-you-type suggestions.
+ * Every word of a name is a key (folded to lower case without diacritics, followed by the rest of the name), so
+ * "pot" finds "Harry Potter". A prefix is a contiguous range of the keys, found with one O(log n) seek.
+ * It is built once at startup and then kept up to date by WizardService.
+ */
+@Component
+public class WizardNameIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WizardNameIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern WORD_START = Pattern.compile("(?<![\\p{L}\\p{N}])[\\p{L}\\p{N}]");
+
+    // Separates the folded name from the id, so equal names still get distinct keys; sorts before any character.
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final WizardRepository wizardRepository;
+
+    private final NavigableMap<String, WizardSuggestion> entries = new TreeMap<>();
+
+    private final Map<Integer, List<String>> keysById = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public WizardNameIndex(WizardRepository wizardRepository) {
+        this.wizardRepository = wizardRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<WizardSuggestion> wizards = wizardRepository.findAllNames();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            keysById.clear();
+            wizards.forEach(this::indexUnderLock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.debug("Wizard name index built with {} wizards and {} keys", wizards.size(), entries.size());
+    }
+
+    public void index(Integer id, String name) {
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(id);
+            indexUnderLock(new WizardSuggestion(id, name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeUnderLock(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} wizards with a word of their name starting with {@code prefix}, ordered by that word.
+     */
+    public List<WizardSuggestion> suggest(String prefix, int limit) {
+        String folded = fold(prefix);
+        if (folded.isBlank()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<WizardSuggestion> suggestions = new LinkedHashSet<>();
+            for (WizardSuggestion suggestion : entries.tailMap(folded, true).headMap(folded + Character.MAX_VALUE).values()) {
+                suggestions.add(suggestion);
+                if (suggestions.size() == limit) {
+                    break;
+                }
+            }
+            return new ArrayList<>(suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void indexUnderLock(WizardSuggestion wizard) {
+        String folded = fold(wizard.name());
+        List<String> keys = new ArrayList<>();
+        WORD_START.matcher(folded).results()
+                .forEach(start -> keys.add(folded.substring(start.start()) + ID_SEPARATOR + wizard.id()));
+        keys.forEach(key -> entries.put(key, wizard));
+        keysById.put(wizard.id(), keys);
+    }
+
+    private void removeUnderLock(Integer id) {
+        List<String> keys = keysById.remove(id);
+        if (keys != null) {
+            keys.forEach(entries::remove);
+        }
+    }
+
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+}
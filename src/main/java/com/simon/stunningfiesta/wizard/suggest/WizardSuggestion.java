@@ -0,0 +1,4 @@
+package com.simon.stunningfiesta.wizard.suggest;
+
+public record WizardSuggestion(Integer id, String name) {
+}
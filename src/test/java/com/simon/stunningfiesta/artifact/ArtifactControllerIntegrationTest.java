@@ -2,7 +2,15 @@ package com.simon.stunningfiesta.artifact;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.simon.stunningfiesta.artifact.converts.ArtifactToArtifactDtoConverter;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CursorPage;
 import com.simon.stunningfiesta.system.StatusCode;
+import com.simon.stunningfiesta.wizard.Wizard;
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.hamcrest.Matchers;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,10 +27,20 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -39,6 +57,15 @@ public class ArtifactControllerIntegrationTest {
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    WizardRepository wizardRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Value("${api.endpoint.base-url}")
     private String baseUrl;
 
@@ -72,6 +99,402 @@ public class ArtifactControllerIntegrationTest {
                 .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM)));
     }
 
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify find all artifacts runs the same number of statements as data grows")
+    void findAllArtifactsStatementCountIsConstant() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            mockMvc.perform(get(this.artifactsUrl)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM)));
+            long statementCount = statistics.getPrepareStatementCount();
+
+            for (int i = 0; i < 3; i++) {
+                wizardRepository.save(new Wizard()
+                        .withName("Wizard " + i)
+                        .addArtifacts(new Artifact().withName("Artifact " + i + "a").withDescription("Description").withImageUrl("ImageUrl"),
+                                new Artifact().withName("Artifact " + i + "b").withDescription("Description").withImageUrl("ImageUrl")));
+            }
+
+            statistics.clear();
+            mockMvc.perform(get(this.artifactsUrl)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM + 6)))
+                    .andExpect(jsonPath("$.data[5].owner.name").value("Wizard 0"))
+                    .andExpect(jsonPath("$.data[5].owner.numbersOfArtifacts").value(2));
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementCount);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @DisplayName("Verify find artifacts by ids keeps the requested order and reports missing ids")
+    void findArtifactsByIdsSuccess() throws Exception {
+        // Cache one of them, the other one comes from the database.
+        mockMvc.perform(get(this.artifactsUrl + "/2"));
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .param("ids", "2, 999,1,2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find Many Success"))
+                .andExpect(jsonPath("$.data.items", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data.items[0].id").value(2))
+                .andExpect(jsonPath("$.data.items[1].id").value(1))
+                .andExpect(jsonPath("$.data.missing", Matchers.contains(999)));
+        mockMvc.perform(get(this.artifactsUrl)
+                        .param("ids", "1,abc")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify export all artifacts as NDJSON success")
+    void exportAllArtifactsSuccess() throws Exception {
+        String body = mockMvc.perform(get(this.artifactsUrl)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(body.lines()).hasSize(DEFAULT_ARTIFACT_NUM);
+        assertThat(new JSONObject(body.lines().findFirst().orElseThrow()).getString("name")).isEqualTo("Elder Wand");
+
+        // Clients that don't ask for NDJSON still get the regular Result envelope.
+        mockMvc.perform(get(this.artifactsUrl))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM)));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify find artifacts page by page with cursor success")
+    void findArtifactPagesSuccess() throws Exception {
+        String content = mockMvc.perform(get(this.artifactsUrl)
+                        .param("limit", "3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find Page Success"))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(3)))
+                .andExpect(jsonPath("$.data.content[0].id").value(1))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String nextCursor = new JSONObject(content).getJSONObject("data").getString("nextCursor");
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .param("after", nextCursor)
+                        .param("limit", "3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(DEFAULT_ARTIFACT_NUM - 3)))
+                .andExpect(jsonPath("$.data.content[0].id").value(4))
+                .andExpect(jsonPath("$.data.nextCursor").isEmpty());
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify search artifacts success")
+    void searchArtifactsSuccess() throws Exception {
+        mockMvc.perform(get(this.artifactsUrl + "/search")
+                        .param("q", "invisible cloak")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Search Success"))
+                .andExpect(jsonPath("$.data[0].name").value("Invisibility Cloak"));
+
+        // The index follows updates.
+        String json = objectMapper.writeValueAsString(new ArtifactDto(null, "Cloak of Shadows", "A plain cloak", "ImageUrl", null, null));
+        mockMvc.perform(put(this.artifactsUrl + "/2")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        mockMvc.perform(get(this.artifactsUrl + "/search")
+                        .param("q", "cloak")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(2)));
+        mockMvc.perform(get(this.artifactsUrl + "/search")
+                        .param("q", "polymorph")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(0)));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify find artifacts with sparse fields selects only those columns")
+    void findArtifactFieldsSuccess() throws Exception {
+        mockMvc.perform(get(this.artifactsUrl)
+                        .param("fields", "name,owner.name")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find All Success"))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM)))
+                .andExpect(jsonPath("$.data[0].id").value(1))
+                .andExpect(jsonPath("$.data[0].name").value("Elder Wand"))
+                .andExpect(jsonPath("$.data[0].owner.name").value("Albus Dumledore"))
+                .andExpect(jsonPath("$.data[0].owner.id").doesNotExist())
+                .andExpect(jsonPath("$.data[0].description").doesNotExist())
+                .andExpect(jsonPath("$.data[4].owner").value(Matchers.nullValue()));
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .param("fields", "name")
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("Find Page Success"))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data.nextCursor").value(CursorPage.encodeCursor(2)));
+
+        mockMvc.perform(get(this.artifactsUrl + "/1")
+                        .param("fields", "owner")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value("Find One Success"))
+                .andExpect(jsonPath("$.data.name").doesNotExist())
+                .andExpect(jsonPath("$.data.owner.id").value(1))
+                .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(2))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Verify find artifacts error when a field is unknown")
+    void findArtifactFieldsErrorWhenFieldUnknown() throws Exception {
+        mockMvc.perform(get(this.artifactsUrl)
+                        .param("fields", "name,secret")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data").value(Matchers.startsWith("Unknown field secret")));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify find artifact by ID returns 304 until the artifact or its owner changes")
+    void findArtifactByIdNotModified() throws Exception {
+        String etag = mockMvc.perform(get(this.artifactsUrl + "/2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(this.artifactsUrl + "/2")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Moving the artifact to another wizard changes the embedded owner, so the ETag must change.
+        mockMvc.perform(put(baseUrl + "/wizards/2/artifacts/2")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        mockMvc.perform(get(this.artifactsUrl + "/2")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(etag)))
+                .andExpect(jsonPath("$.data.owner.id").value(2));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify find all artifacts returns 304 until the catalog changes")
+    void findAllArtifactsNotModified() throws Exception {
+        String etag = mockMvc.perform(get(this.artifactsUrl)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(delete(this.artifactsUrl + "/3")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM - 1)));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify find artifact by ID is served from the cache until the artifact or its owner changes")
+    void findArtifactByIdIsCached() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            mockMvc.perform(get(this.artifactsUrl + "/2")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(2));
+
+            statistics.clear();
+            mockMvc.perform(get(this.artifactsUrl + "/2")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data.name").value("Polymorph"));
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(meterRegistry.get("cache.gets")
+                    .tags("cache", CatalogCache.ARTIFACTS, "result", "hit")
+                    .functionCounter()
+                    .count()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        String json = objectMapper.writeValueAsString(new ArtifactDto(null, "Polymorph Potion", "Description", "ImageUrl", null, null));
+        mockMvc.perform(put(this.artifactsUrl + "/2")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(jsonPath("$.flag").value(true));
+        mockMvc.perform(get(this.artifactsUrl + "/2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.name").value("Polymorph Potion"));
+
+        // Moving a sibling away changes the owner's artifact count embedded in this artifact.
+        mockMvc.perform(put(baseUrl + "/wizards/2/artifacts/1")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+        mockMvc.perform(get(this.artifactsUrl + "/2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(1));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify bulk update and bulk delete artifacts success")
+    void bulkUpdateAndDeleteArtifactsSuccess() throws Exception {
+        // Warm the cache, the bulk statements must evict it.
+        mockMvc.perform(get(this.artifactsUrl + "/3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(1));
+
+        mockMvc.perform(patch(this.artifactsUrl)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"where\": {\"nameContains\": \"CLOAK\"}, \"description\": \"Retired\"}"))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Bulk Update Success"))
+                .andExpect(jsonPath("$.data.affected").value(1));
+        mockMvc.perform(get(this.artifactsUrl + "/search")
+                        .param("q", "retired")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data[0].name").value("Invisibility Cloak"));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            // Elder Wand and Invisibility Cloak, owned by two different wizards.
+            mockMvc.perform(delete(this.artifactsUrl)
+                            .header(HttpHeaders.AUTHORIZATION, token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"ids\": [1, 3, 999]}"))
+                    .andExpect(jsonPath("$.flag").value(true))
+                    .andExpect(jsonPath("$.message").value("Bulk Delete Success"))
+                    .andExpect(jsonPath("$.data.affected").value(2));
+            // Read the rows, delete, bump the owners' versions, then write the change log in a single batch, its
+            // sequence numbers are assigned in memory. The owners' other artifacts aren't read.
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM - 2)));
+        mockMvc.perform(get(this.artifactsUrl + "/3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND));
+        mockMvc.perform(get(this.artifactsUrl + "/2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(1));
+    }
+
+    @Test
+    @DisplayName("Verify bulk delete artifacts error when the selection is ambiguous")
+    void bulkDeleteArtifactsErrorWhenSelectionInvalid() throws Exception {
+        mockMvc.perform(delete(this.artifactsUrl)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1], \"ownerId\": 1}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @DisplayName("Verify upload an artifact image and download it whole, by range and as thumbnail")
+    void uploadAndDownloadArtifactImageSuccess() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png", png);
+        byte[] image = png.toByteArray();
+
+        String content = mockMvc.perform(put(this.artifactsUrl + "/2/image")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(image))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Upload Image Success"))
+                .andExpect(jsonPath("$.data.imageUrl", Matchers.startsWith(baseUrl + "/artifacts/2/image?v=")))
+                .andExpect(jsonPath("$.data.thumbnailUrl", Matchers.startsWith(baseUrl + "/artifacts/2/thumbnail?v=")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String imageUrl = new JSONObject(content).getJSONObject("data").getString("imageUrl");
+        String thumbnailUrl = new JSONObject(content).getJSONObject("data").getString("thumbnailUrl");
+
+        mockMvc.perform(get(this.artifactsUrl + "/2"))
+                .andExpect(jsonPath("$.data.imageUrl").value(imageUrl));
+
+        String etag = mockMvc.perform(get(imageUrl))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().bytes(image))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, Matchers.containsString("immutable")))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(this.artifactsUrl + "/2/image")
+                        .header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + image.length))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, Matchers.containsString("no-cache")))
+                .andExpect(content().bytes(Arrays.copyOfRange(image, 10, 20)));
+        mockMvc.perform(get(this.artifactsUrl + "/2/image")
+                        .header(HttpHeaders.RANGE, "bytes=" + image.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+        mockMvc.perform(get(this.artifactsUrl + "/2/image")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        byte[] thumbnail = mockMvc.perform(get(thumbnailUrl))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        assertThat(ImageIO.read(new ByteArrayInputStream(thumbnail)).getWidth()).isEqualTo(200);
+    }
+
     @Test
     @DisplayName("Verify find artifact by ID success")
     void findArtifactByIdSuccess() throws Exception {
@@ -127,13 +550,55 @@ public class ArtifactControllerIntegrationTest {
                 .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM + 1)));
     }
 
+    @Test
+    @DisplayName("Verify import artifacts in bulk success")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+        // Reset H2 database before calling this test case.
+    void importArtifactsSuccess() throws Exception {
+        String ndjson = objectMapper.writeValueAsString(new ArtifactDto(null, "Time-Turner", "Turns back time", "ImageUrl", null, null))
+                + "\n" + objectMapper.writeValueAsString(new ArtifactDto(null, "", "", "ImageUrl", null, null)) + "\n";
+
+        mockMvc.perform(post(this.artifactsUrl + "/batch")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Import Success"))
+                .andExpect(jsonPath("$.data.total").value(2))
+                .andExpect(jsonPath("$.data.imported").value(1))
+                .andExpect(jsonPath("$.data.items[1].errors.name").value("name is required"));
+
+        mockMvc.perform(get(this.artifactsUrl)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_ARTIFACT_NUM + 1)));
+    }
+
+    @Test
+    @DisplayName("Verify import artifacts error when the payload is malformed")
+    void importArtifactsErrorWhenPayloadMalformed() throws Exception {
+        String truncated = objectMapper.writeValueAsString(new ArtifactDto(null, "Time-Turner", "Turns back time", "ImageUrl", null, null))
+                + "\n{\"name\": \"Remembr";
+
+        mockMvc.perform(post(this.artifactsUrl + "/batch")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(truncated)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data").value("Malformed import payload."));
+    }
+
     @Test
     @DisplayName("Verify save artifact error when parameters invalid")
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
         // Reset H2 database before calling this test case.
     void saveArtifactErrorWhenParameterInvalid() throws Exception {
         String json = objectMapper.writeValueAsString(
-                new ArtifactDto(null, "", "", "", null));
+                new ArtifactDto(null, "", "", "", null, null));
 
         mockMvc.perform(post(this.artifactsUrl)
                         .header(HttpHeaders.AUTHORIZATION, token)
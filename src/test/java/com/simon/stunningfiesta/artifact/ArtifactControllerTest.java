@@ -2,7 +2,9 @@ package com.simon.stunningfiesta.artifact;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.simon.stunningfiesta.artifact.converts.ArtifactToArtifactDtoConverter;
+import com.simon.stunningfiesta.system.CursorPage;
 import com.simon.stunningfiesta.system.StatusCode;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
@@ -17,13 +19,17 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
 
@@ -45,6 +51,8 @@ class ArtifactControllerTest {
 
     List<Artifact> artifacts;
 
+    List<ArtifactSummary> artifactSummaries;
+
     @Value("${api.endpoint.base-url}/artifacts")
     private String baseUrl;
 
@@ -66,6 +74,10 @@ class ArtifactControllerTest {
                 .withDescription("The Elder Wand, known throughout history as ...")
                 .withImageUrl("ImageUrl");
         artifacts = List.of(deliminator, invisibilityCloak, elderWand);
+        artifactSummaries = List.of(
+                new ArtifactSummary(2, "Deliminator", "An deliminator is a device invented by Albums Dumbledore than ...", "ImageUrl", null, 0, 1, "Albus Dumbledore", 1L, 0),
+                new ArtifactSummary(1, "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible", "ImageUrl", null, 0, null, null, null, null),
+                new ArtifactSummary(3, "Elder Wand", "The Elder Wand, known throughout history as ...", "ImageUrl", null, 0, null, null, null, null));
     }
 
     @AfterEach
@@ -74,7 +86,7 @@ class ArtifactControllerTest {
 
     @Test
     void findArtifactByIdSuccess() throws Exception {
-        given(artifactService.findById(2)).willReturn(artifacts.get(0));
+        given(artifactService.findSummaryById(2)).willReturn(artifactSummaries.get(0));
 
         mockMvc.perform(get(this.baseUrl + "/2")
                         .accept(MediaType.APPLICATION_JSON))
@@ -82,12 +94,14 @@ class ArtifactControllerTest {
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
                 .andExpect(jsonPath("$.message").value("Find One Success"))
                 .andExpect(jsonPath("$.data.id").value(2))
-                .andExpect(jsonPath("$.data.name").value("Deliminator"));
+                .andExpect(jsonPath("$.data.name").value("Deliminator"))
+                .andExpect(jsonPath("$.data.owner.name").value("Albus Dumbledore"))
+                .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(1));
     }
 
     @Test
     void findArtifactByIdNotFound() throws Exception {
-        given(artifactService.findById(2))
+        given(artifactService.findSummaryById(2))
                 .willThrow(new ObjectNotFoundException("artifact", 2));
 
         mockMvc.perform(get(this.baseUrl + "/2")
@@ -100,17 +114,61 @@ class ArtifactControllerTest {
 
     @Test
     void findAllArtifactsSuccess() throws Exception {
-        given(artifactService.findAll()).willReturn(this.artifacts);
+        given(artifactService.findAllSummaries()).willReturn(this.artifactSummaries);
 
         mockMvc.perform(get(this.baseUrl)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
                 .andExpect(jsonPath("$.message").value("Find All Success"))
-                .andExpect(jsonPath("$.data", Matchers.hasSize(this.artifacts.size())))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(this.artifactSummaries.size())))
                 .andExpect(jsonPath("$.data[0].id").value(2));
     }
 
+    @Test
+    void exportAllArtifactsSuccess() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ArtifactSummary> consumer = invocation.getArgument(0);
+            this.artifactSummaries.forEach(consumer);
+            return null;
+        }).when(artifactService).exportAll(any());
+
+        String body = mockMvc.perform(get(this.baseUrl)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(this.artifactSummaries.size());
+        assertThat(objectMapper.readValue(lines[0], ArtifactDto.class).name()).isEqualTo("Deliminator");
+    }
+
+    @Test
+    void findArtifactPageSuccess() throws Exception {
+        given(artifactService.findSummaryPage(0, 3)).willReturn(this.artifactSummaries);
+
+        mockMvc.perform(get(this.baseUrl)
+                        .param("limit", "3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Find Page Success"))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(3)))
+                .andExpect(jsonPath("$.data.nextCursor").value(CursorPage.encodeCursor(3)));
+    }
+
+    @Test
+    void findArtifactPageErrorWhenCursorInvalid() throws Exception {
+        mockMvc.perform(get(this.baseUrl)
+                        .param("after", "not-a-cursor")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value("Provided arguments are invalid, see data for details."));
+    }
+
     @Test
     void saveArtifactSuccess() throws Exception {
         Artifact artifact = new Artifact()
@@ -137,7 +195,7 @@ class ArtifactControllerTest {
     @Test
     void saveArtifactErrorWhenParametersInvalid() throws Exception {
         String json = objectMapper.writeValueAsString(
-                new ArtifactDto(null, "", "", "", null));
+                new ArtifactDto(null, "", "", "", null, null));
 
         mockMvc.perform(post(this.baseUrl)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -243,4 +301,47 @@ class ArtifactControllerTest {
                 .andExpect(jsonPath("$.message").value("Could not find artifact with Id 123 :("))
                 .andExpect(jsonPath("$.data").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateArtifactsSuccess() throws Exception {
+        ArtifactBulkUpdate bulkUpdate = new ArtifactBulkUpdate(new ArtifactSelection(List.of(1, 2), null, null), "New", null);
+        given(artifactService.updateAll(bulkUpdate)).willReturn(2);
+
+        mockMvc.perform(patch(this.baseUrl)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bulkUpdate))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Bulk Update Success"))
+                .andExpect(jsonPath("$.data.affected").value(2));
+    }
+
+    @Test
+    void deleteArtifactsSuccess() throws Exception {
+        given(artifactService.deleteAll(new ArtifactSelection(null, 1, null))).willReturn(3);
+
+        mockMvc.perform(delete(this.baseUrl)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ownerId\": 1}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Bulk Delete Success"))
+                .andExpect(jsonPath("$.data.affected").value(3));
+    }
+
+    @Test
+    void deleteArtifactsErrorWhenSelectionInvalid() throws Exception {
+        given(artifactService.deleteAll(new ArtifactSelection(null, null, null)))
+                .willThrow(new BadRequestException("Select artifacts either by ids or by ownerId/nameContains."));
+
+        mockMvc.perform(delete(this.baseUrl)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data").value("Select artifacts either by ids or by ownerId/nameContains."));
+    }
+}
@@ -0,0 +1,105 @@
+package com.simon.stunningfiesta.artifact;
+
+import com.simon.stunningfiesta.artifact.converts.ArtifactDtoToArtifactConverter;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactImportServiceTest {
+
+    @Mock
+    ArtifactService artifactService;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    @Mock
+    EntityManager entityManager;
+
+    ArtifactImportService artifactImportService;
+
+    @BeforeEach
+    void setUp() {
+        artifactImportService = new ArtifactImportService(artifactService,
+                new ArtifactDtoToArtifactConverter(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                transactionTemplate,
+                entityManager);
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void testImportAllSuccess() {
+        int[] nextId = {100};
+        given(artifactService.saveAll(anyList())).willAnswer(invocation -> {
+            List<Artifact> artifacts = invocation.getArgument(0);
+            return artifacts.stream().map(artifact -> new Artifact().withId(nextId[0]++)).toList();
+        });
+        List<ArtifactDto> artifactDtos = IntStream.range(0, ArtifactImportService.CHUNK_SIZE + 2)
+                .mapToObj(i -> new ArtifactDto(null, "Artifact " + i, "Description " + i, "ImageUrl", null, null))
+                .toList();
+
+        ArtifactImportSummary summary = artifactImportService.importAll(artifactDtos.iterator());
+
+        assertThat(summary.total()).isEqualTo(ArtifactImportService.CHUNK_SIZE + 2);
+        assertThat(summary.imported()).isEqualTo(ArtifactImportService.CHUNK_SIZE + 2);
+        assertThat(summary.items().get(0).id()).isEqualTo(100);
+        // One transaction per chunk, not per artifact.
+        verify(artifactService, times(2)).saveAll(anyList());
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void testImportAllRejectsInvalidArtifacts() {
+        given(artifactService.saveAll(anyList())).willAnswer(invocation -> {
+            List<Artifact> artifacts = new ArrayList<>(invocation.getArgument(0));
+            artifacts.forEach(artifact -> artifact.setId(1));
+            return artifacts;
+        });
+        List<ArtifactDto> artifactDtos = List.of(
+                new ArtifactDto(null, "", "Description", "ImageUrl", null, null),
+                new ArtifactDto(7, "Name", "Description", "ImageUrl", null, null));
+
+        ArtifactImportSummary summary = artifactImportService.importAll(artifactDtos.iterator());
+
+        assertThat(summary.imported()).isEqualTo(1);
+        assertThat(summary.rejected()).isEqualTo(1);
+        assertThat(summary.items().get(0).imported()).isFalse();
+        assertThat(summary.items().get(0).errors()).containsEntry("name", "name is required");
+        assertThat(summary.items().get(1).index()).isEqualTo(1);
+        assertThat(summary.items().get(1).imported()).isTrue();
+    }
+
+    @Test
+    void testImportAllRejectsFailedChunkWithoutItsCause() {
+        given(artifactService.saveAll(anyList()))
+                .willThrow(new DataIntegrityViolationException("could not execute statement [insert into artifact ...]"));
+        List<ArtifactDto> artifactDtos = List.of(new ArtifactDto(null, "Name", "Description", "ImageUrl", null, null));
+
+        ArtifactImportSummary summary = artifactImportService.importAll(artifactDtos.iterator());
+
+        assertThat(summary.rejected()).isEqualTo(1);
+        assertThat(summary.items().get(0).errors()).containsExactly(entry("chunk", ArtifactImportService.CHUNK_FAILED));
+    }
+}
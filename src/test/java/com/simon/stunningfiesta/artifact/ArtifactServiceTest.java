@@ -1,22 +1,43 @@
 package com.simon.stunningfiesta.artifact;
 
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeEntityType;
+import com.simon.stunningfiesta.change.ChangeOperation;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.NotFoundCache;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
 import com.simon.stunningfiesta.wizard.Wizard;
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import com.simon.stunningfiesta.wizard.WizardSummary;
+import com.simon.stunningfiesta.wizard.leaderboard.WizardLeaderboard;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -26,6 +47,33 @@ class ArtifactServiceTest {
     @Mock
     ArtifactRepository artifactRepository;
 
+    @Mock
+    WizardRepository wizardRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    ArtifactSearchIndex artifactSearchIndex;
+
+    @Mock
+    ImageBlobStore imageBlobStore;
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    CatalogCache catalogCache;
+
+    @Mock
+    ChangeService changeService;
+
+    @Mock
+    WizardLeaderboard wizardLeaderboard;
+
+    @Spy
+    NotFoundCache notFoundCache = new NotFoundCache(Duration.ofSeconds(30));
+
     @InjectMocks
     ArtifactService artifactService;
 
@@ -90,6 +138,33 @@ class ArtifactServiceTest {
                 .hasMessage("Could not find artifact with Id 1 :(");
     }
 
+    @Test
+    void testFindByIdNotFoundIsRemembered() {
+        given(artifactRepository.findById(1)).willReturn(Optional.empty());
+        catchThrowable(() -> artifactService.findById(1));
+
+        Throwable thrown = catchThrowable(() -> artifactService.findById(1));
+
+        assertThat(thrown)
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Could not find artifact with Id 1 :(");
+        assertThat(thrown.getStackTrace()).isEmpty();
+        verify(artifactRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void testSaveForgetsNotFound() {
+        Artifact artifact = new Artifact().withId(1);
+        given(artifactRepository.findById(1)).willReturn(Optional.empty(), Optional.of(artifact));
+        given(artifactRepository.save(artifact)).willReturn(artifact);
+        catchThrowable(() -> artifactService.findById(1));
+
+        artifactService.save(artifact);
+
+        assertThat(artifactService.findById(1)).isSameAs(artifact);
+        verify(artifactRepository, times(2)).findById(1);
+    }
+
     @Test
     void testFindAllSuccess() {
         given(artifactRepository.findAll()).willReturn(this.artifacts);
@@ -100,6 +175,59 @@ class ArtifactServiceTest {
         verify(artifactRepository, times(1)).findAll();
     }
 
+    @Test
+    void testFindPageSuccess() {
+        List<ArtifactSummary> summaries = List.of(
+                new ArtifactSummary(11, "Invisibility Cloak", "Description", "ImageUrl", null, 0, 1, "Harry Potter", 1L, 0),
+                new ArtifactSummary(12, "Deliminator", "Description", "ImageUrl", null, 0, null, null, null, null));
+        given(artifactRepository.findSummariesAfter(10, PageRequest.ofSize(2))).willReturn(summaries);
+
+        List<ArtifactSummary> actualArtifacts = artifactService.findSummaryPage(10, 2);
+
+        assertThat(actualArtifacts).containsExactlyElementsOf(summaries);
+        verify(artifactRepository, times(1)).findSummariesAfter(10, PageRequest.ofSize(2));
+    }
+
+    @Test
+    void testFindSummaryByIdTakesOwnerFromWizardsCache() {
+        readThroughCatalogCache();
+        given(artifactRepository.findSummaryById(11)).willReturn(Optional.of(
+                new ArtifactSummary(11, "Invisibility Cloak", "Description", "ImageUrl", null, 0, 1, "Harry Potter", 1L, 0)));
+        given(wizardRepository.findSummaryById(1)).willReturn(Optional.of(new WizardSummary(1, "Harry James Potter", 3, 2L)));
+
+        ArtifactSummary artifact = artifactService.findSummaryById(11);
+
+        assertThat(artifact.ownerName()).isEqualTo("Harry James Potter");
+        assertThat(artifact.ownerNumberOfArtifacts()).isEqualTo(2L);
+        assertThat(artifact.etag()).isEqualTo("\"artifact-11-0-wizard-1-3\"");
+    }
+
+    @Test
+    void testFindSummaryByIdNotFound() {
+        readThroughCatalogCache();
+        given(artifactRepository.findSummaryById(1)).willReturn(Optional.empty());
+
+        Throwable thrown = catchThrowable(() -> artifactService.findSummaryById(1));
+
+        assertThat(thrown)
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Could not find artifact with Id 1 :(");
+    }
+
+    @Test
+    void testExportAllSuccess() {
+        List<ArtifactSummary> summaries = List.of(
+                new ArtifactSummary(1, "Deluminator", "A deluminator", "ImageUrl", null, 0, null, null, null, null),
+                new ArtifactSummary(2, "Invisibility Cloak", "An invisibility cloak", "ImageUrl", null, 0, null, null, null, null));
+        given(artifactRepository.streamAllSummaries()).willReturn(summaries.stream());
+
+        List<ArtifactSummary> exportedArtifacts = new ArrayList<>();
+        artifactService.exportAll(exportedArtifacts::add);
+
+        assertThat(exportedArtifacts).containsExactlyElementsOf(summaries);
+        verify(artifactRepository, times(1)).streamAllSummaries();
+    }
+
     @Test
     void testSaveSuccess() {
         Artifact artifact = new Artifact()
@@ -114,6 +242,7 @@ class ArtifactServiceTest {
         assertThat(savedArtifact.getName()).isEqualTo(artifact.getName());
         assertThat(savedArtifact.getDescription()).isEqualTo(artifact.getDescription());
         verify(artifactRepository, times(1)).save(artifact);
+        verify(artifactSearchIndex, times(1)).index(null, "Test Artifact", "Artifact's description...");
     }
 
     @Test
@@ -140,6 +269,7 @@ class ArtifactServiceTest {
         assertThat(updatedArtifact.getImageUrl()).isEqualTo(newArtifact.getImageUrl());
         verify(artifactRepository, times(1)).findById(123);
         verify(artifactRepository, times(1)).save(artifact);
+        verify(catalogCache, times(1)).evictArtifact(123);
     }
 
     @Test
@@ -172,6 +302,25 @@ class ArtifactServiceTest {
         artifactService.deleteById(123);
 
         verify(artifactRepository, times(1)).deleteById(123);
+        verify(artifactSearchIndex, times(1)).remove(123);
+        verify(imageBlobStore, times(1)).remove(123);
+        verify(catalogCache, times(1)).evictArtifact(123);
+        verify(changeService, times(1)).record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, 123);
+    }
+
+    @Test
+    void testDeleteOwnedArtifactEvictsOnlyTheOwner() {
+        Artifact artifact = new Artifact().withId(123).withName("Test Artifact");
+        new Wizard().withId(1).addArtifacts(artifact);
+        given(artifactRepository.findById(123)).willReturn(Optional.of(artifact));
+
+        artifactService.deleteById(123);
+
+        verify(catalogCache, times(1)).evictWizard(1);
+        verify(catalogCache, times(1)).evictArtifact(123);
+        verify(changeService, times(1)).record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, 1);
+        verify(changeService, never()).record(eq(ChangeEntityType.ARTIFACT), eq(ChangeOperation.UPSERT), anyCollection());
+        verify(wizardLeaderboard, times(1)).adjust(1, -1);
     }
 
     @Test
@@ -183,4 +332,64 @@ class ArtifactServiceTest {
 
         verify(artifactRepository, times(1)).findById(123);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUpdateAllSuccess() {
+        List<ArtifactRef> refs = List.of(new ArtifactRef(1, "Invisibility Cloak", "Old", 1),
+                new ArtifactRef(2, "Deliminator", "Old", null));
+        given(artifactRepository.findRefsByIds(List.of(1, 2, 999))).willReturn(refs);
+        given(artifactRepository.updateAllByIds(List.of(1, 2), "New", null)).willReturn(2);
+
+        int updated = artifactService.updateAll(
+                new ArtifactBulkUpdate(new ArtifactSelection(List.of(1, 2, 999), null, null), "New", null));
+
+        assertThat(updated).isEqualTo(2);
+        verify(artifactSearchIndex, times(1)).index(1, "Invisibility Cloak", "New");
+        verify(artifactSearchIndex, times(1)).index(2, "Deliminator", "New");
+        verify(catalogCache, times(1)).evictArtifacts(List.of(1, 2));
+    }
+
+    @Test
+    void testUpdateAllErrorWhenNothingToUpdate() {
+        Throwable exception = catchThrowable(() -> artifactService.updateAll(
+                new ArtifactBulkUpdate(new ArtifactSelection(List.of(1), null, null), null, null)));
+
+        assertThat(exception).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(artifactRepository);
+    }
+
+    @Test
+    void testDeleteAllByFilterSuccess() {
+        given(artifactRepository.findRefsByFilter(1, "wand"))
+                .willReturn(List.of(new ArtifactRef(3, "Elder Wand", "Description", 1)));
+        given(artifactRepository.deleteAllByIds(List.of(3))).willReturn(1);
+
+        int deleted = artifactService.deleteAll(new ArtifactSelection(null, 1, "wand"));
+
+        assertThat(deleted).isEqualTo(1);
+        verify(wizardRepository, times(1)).incrementVersions(Set.of(1));
+        verify(artifactSearchIndex, times(1)).remove(3);
+        // The owner's other artifacts are neither read nor evicted, they take its new count from the wizards cache.
+        verify(artifactRepository, never()).findIdsByOwnerIds(any());
+        verify(catalogCache, times(1)).evictWizards(Set.of(1));
+        verify(catalogCache, times(1)).evictArtifacts(List.of(3));
+        verify(changeService, times(1)).record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, Set.of(1));
+        verify(changeService, never()).record(eq(ChangeEntityType.ARTIFACT), eq(ChangeOperation.UPSERT), anyCollection());
+        verify(changeService, times(1)).record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, List.of(3));
+        verify(wizardLeaderboard, times(1)).adjust(1, -1);
+    }
+
+    @Test
+    void testDeleteAllErrorWhenSelectionInvalid() {
+        Throwable exception = catchThrowable(() -> artifactService.deleteAll(new ArtifactSelection(List.of(1), 1, null)));
+
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+                .hasMessage("Select artifacts either by ids or by ownerId/nameContains.");
+        verifyNoInteractions(artifactRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readThroughCatalogCache() {
+        given(catalogCache.get(any(), any(), any())).willAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(2)).get());
+    }
+}
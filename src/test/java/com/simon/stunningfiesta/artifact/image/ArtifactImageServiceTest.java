@@ -0,0 +1,123 @@
+package com.simon.stunningfiesta.artifact.image;
+
+import com.simon.stunningfiesta.artifact.Artifact;
+import com.simon.stunningfiesta.artifact.ArtifactService;
+import com.simon.stunningfiesta.system.exception.BadRequestException;
+import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactImageServiceTest {
+
+    @Mock
+    ArtifactService artifactService;
+
+    @Mock
+    ImageBlobStore imageBlobStore;
+
+    ArtifactImageService artifactImageService;
+
+    byte[] png;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        artifactImageService = new ArtifactImageService(artifactService, imageBlobStore, "/api/v1/artifacts", 1_000_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_INT_ARGB), "png", out);
+        png = out.toByteArray();
+    }
+
+    @Test
+    void testStoreSuccess() throws IOException {
+        Artifact artifact = new Artifact().withId(1);
+        given(artifactService.findById(1)).willReturn(artifact);
+        given(imageBlobStore.append(eq(1), eq(ImageVariant.FULL), eq("image/png"), any()))
+                .willReturn(new ImageBlob(1, ImageVariant.FULL, "image/png", 0, png.length, "full"));
+        given(imageBlobStore.append(eq(1), eq(ImageVariant.THUMBNAIL), eq("image/png"), any()))
+                .willReturn(new ImageBlob(1, ImageVariant.THUMBNAIL, "image/png", png.length, 10, "small"));
+        given(artifactService.updateImageUrls(eq(1), eq("/api/v1/artifacts/1/image?v=" + ImageBlobStore.etag(png)),
+                startsWith("/api/v1/artifacts/1/thumbnail?v=")))
+                .willReturn(artifact);
+
+        assertThat(artifactImageService.store(1, "image/png", png)).isSameAs(artifact);
+        // The blobs are in place before the URLs pointing at them are written.
+        InOrder inOrder = inOrder(imageBlobStore, artifactService);
+        inOrder.verify(imageBlobStore, times(2)).publish(any());
+        inOrder.verify(artifactService).updateImageUrls(eq(1), any(), any());
+    }
+
+    @Test
+    void testStoreErrorWhenImageCannotBeWritten() throws IOException {
+        given(artifactService.findById(1)).willReturn(new Artifact().withId(1));
+        given(imageBlobStore.append(eq(1), eq(ImageVariant.FULL), eq("image/png"), any()))
+                .willThrow(new IOException("No space left on device"));
+
+        Throwable thrown = catchThrowable(() -> artifactImageService.store(1, "image/png", png));
+
+        assertThat(thrown).isInstanceOf(UncheckedIOException.class);
+        verify(imageBlobStore, never()).publish(any());
+        verify(artifactService, never()).updateImageUrls(any(), any(), any());
+    }
+
+    @Test
+    void testStoreErrorWhenArtifactIdNotExist() throws IOException {
+        given(artifactService.findById(1)).willThrow(new ObjectNotFoundException("artifact", 1));
+
+        Throwable exception = catchThrowable(() -> artifactImageService.store(1, "image/png", png));
+
+        assertThat(exception).isInstanceOf(ObjectNotFoundException.class);
+        verify(imageBlobStore, never()).append(anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void testStoreErrorWhenImageIsCorrupt() {
+        Throwable exception = catchThrowable(() -> artifactImageService.store(1, "image/png", new byte[]{1, 2, 3}));
+
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+                .hasMessage("Image could not be decoded as image/png.");
+        verifyNoInteractions(artifactService, imageBlobStore);
+    }
+
+    @Test
+    void testStoreErrorWhenImageHasTooManyPixels() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(2000, 1000, BufferedImage.TYPE_BYTE_BINARY), "png", out);
+
+        Throwable exception = catchThrowable(() -> artifactImageService.store(1, "image/png", out.toByteArray()));
+
+        assertThat(exception).isInstanceOf(BadRequestException.class)
+                .hasMessage("Image must have at most 1000000 pixels.");
+        verifyNoInteractions(artifactService, imageBlobStore);
+    }
+
+    @Test
+    void testThumbnailFitsInThumbnailSize() throws IOException {
+        ArtifactImageService.Thumbnail thumbnail = ArtifactImageService.thumbnail(png, "image/png", 1_000_000);
+
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(thumbnail.data()));
+        assertThat(thumbnail.contentType()).isEqualTo("image/png");
+        assertThat(scaled.getWidth()).isEqualTo(ArtifactImageService.THUMBNAIL_SIZE);
+        assertThat(scaled.getHeight()).isEqualTo(ArtifactImageService.THUMBNAIL_SIZE / 2);
+    }
+}
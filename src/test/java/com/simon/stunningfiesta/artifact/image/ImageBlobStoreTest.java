@@ -0,0 +1,139 @@
+package com.simon.stunningfiesta.artifact.image;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageBlobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    Path path;
+
+    ImageBlobStore imageBlobStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = directory.resolve("images.blob");
+        imageBlobStore = new ImageBlobStore(path.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        imageBlobStore.destroy();
+    }
+
+    @Test
+    void testAppendIsInvisibleUntilPublished() throws IOException {
+        ImageBlob blob = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("first image"));
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).isEmpty();
+
+        imageBlobStore.publish(blob);
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).contains(blob);
+        assertThat(read(blob, 0, blob.length())).isEqualTo("first image");
+        assertThat(read(blob, 6, 5)).isEqualTo("image");
+    }
+
+    @Test
+    void testReopenRebuildsTheLatestImages() throws IOException {
+        imageBlobStore.publish(imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("old image")));
+        ImageBlob latest = imageBlobStore.append(1, ImageVariant.FULL, "image/jpeg", bytes("new image"));
+        imageBlobStore.publish(latest);
+        imageBlobStore.publish(imageBlobStore.append(2, ImageVariant.FULL, "image/png", bytes("removed")));
+        imageBlobStore.remove(2);
+        imageBlobStore.destroy();
+
+        imageBlobStore = new ImageBlobStore(path.toString());
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).contains(latest);
+        assertThat(imageBlobStore.find(2, ImageVariant.FULL)).isEmpty();
+        assertThat(read(latest, 0, latest.length())).isEqualTo("new image");
+    }
+
+    @Test
+    void testReopenDropsATornRecord() throws IOException {
+        ImageBlob blob = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("complete"));
+        imageBlobStore.destroy();
+        long size = Files.size(path);
+        Files.write(path, new byte[]{0x53, 0x46}, StandardOpenOption.APPEND);
+
+        imageBlobStore = new ImageBlobStore(path.toString());
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).contains(blob);
+        assertThat(Files.size(path)).isEqualTo(size);
+    }
+
+    @Test
+    void testRevertPublishesThePreviousImageAgain() throws IOException {
+        ImageBlob previous = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("old image"));
+        imageBlobStore.publish(previous);
+        ImageBlob rolledBack = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("new image"));
+        imageBlobStore.publish(rolledBack);
+
+        imageBlobStore.revert(rolledBack, previous);
+
+        ImageBlob restored = imageBlobStore.find(1, ImageVariant.FULL).orElseThrow();
+        assertThat(read(restored, 0, restored.length())).isEqualTo("old image");
+        imageBlobStore.destroy();
+        imageBlobStore = new ImageBlobStore(path.toString());
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).contains(restored);
+    }
+
+    @Test
+    void testRevertOfTheFirstImagesLeavesNone() throws IOException {
+        ImageBlob image = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("image"));
+        imageBlobStore.publish(image);
+        ImageBlob thumbnail = imageBlobStore.append(1, ImageVariant.THUMBNAIL, "image/png", bytes("thumbnail"));
+        imageBlobStore.publish(thumbnail);
+
+        imageBlobStore.revert(image, null);
+        imageBlobStore.revert(thumbnail, null);
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).isEmpty();
+        imageBlobStore.destroy();
+        imageBlobStore = new ImageBlobStore(path.toString());
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).isEmpty();
+        assertThat(imageBlobStore.find(1, ImageVariant.THUMBNAIL)).isEmpty();
+    }
+
+    @Test
+    void testRevertLeavesALaterUploadOrDeletionAlone() throws IOException {
+        ImageBlob rolledBack = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("rolled back"));
+        imageBlobStore.publish(rolledBack);
+        ImageBlob later = imageBlobStore.append(1, ImageVariant.FULL, "image/png", bytes("later"));
+        imageBlobStore.publish(later);
+
+        imageBlobStore.revert(rolledBack, null);
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).contains(later);
+
+        imageBlobStore.remove(1);
+        imageBlobStore.revert(later, rolledBack);
+
+        assertThat(imageBlobStore.find(1, ImageVariant.FULL)).isEmpty();
+    }
+
+    private String read(ImageBlob blob, long start, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageBlobStore.transferTo(blob, start, count, Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package com.simon.stunningfiesta.artifact.search;
+
+import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSearchIndexTest {
+
+    @Mock
+    ArtifactRepository artifactRepository;
+
+    @InjectMocks
+    ArtifactSearchIndex artifactSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        artifactSearchIndex.index(1, "Elder Wand", "The Elder Wand, known throughout history as the Deathstick");
+        artifactSearchIndex.index(2, "Polymorph", "The polymorph could turn the target to some animal");
+        artifactSearchIndex.index(3, "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible");
+    }
+
+    @Test
+    void testSearchRanksBestMatchFirst() {
+        List<ArtifactSearchHit> hits = artifactSearchIndex.search("invisibility wand", 10);
+
+        assertThat(hits).extracting(ArtifactSearchHit::id).containsExactlyInAnyOrder(1, 3);
+        assertThat(hits.get(0).score()).isGreaterThanOrEqualTo(hits.get(1).score());
+    }
+
+    @Test
+    void testSearchIsCaseInsensitiveAndIgnoresPunctuation() {
+        List<ArtifactSearchHit> hits = artifactSearchIndex.search("ELDER-wand!", 10);
+
+        assertThat(hits).extracting(ArtifactSearchHit::id).containsExactly(1);
+        assertThat(hits.get(0).name()).isEqualTo("Elder Wand");
+    }
+
+    @Test
+    void testSearchReturnsOnlyTopK() {
+        List<ArtifactSearchHit> hits = artifactSearchIndex.search("the", 2);
+
+        assertThat(hits).hasSize(2);
+    }
+
+    @Test
+    void testIndexReplacesPreviousVersion() {
+        artifactSearchIndex.index(2, "Time-Turner", "Turns back time");
+
+        assertThat(artifactSearchIndex.search("polymorph", 10)).isEmpty();
+        assertThat(artifactSearchIndex.search("time", 10)).extracting(ArtifactSearchHit::id).containsExactly(2);
+    }
+
+    @Test
+    void testRemove() {
+        artifactSearchIndex.remove(3);
+
+        assertThat(artifactSearchIndex.search("cloak", 10)).isEmpty();
+    }
+}
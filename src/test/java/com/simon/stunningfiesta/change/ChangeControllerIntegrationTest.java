@@ -0,0 +1,180 @@
+package com.simon.stunningfiesta.change;
+
+import com.simon.stunningfiesta.system.StatusCode;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Integration test for change feed API endpoint.")
+@Tag("integration")
+public class ChangeControllerIntegrationTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ChangeService changeService;
+
+    @Value("${api.endpoint.base-url}")
+    private String baseUrl;
+
+    @Value("${api.endpoint.base-url}/changes")
+    private String changesUrl;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ResultActions resultActions = this.mockMvc.perform(post(baseUrl + "/users/login")
+                .with(httpBasic("simon", "123456"))
+                .accept(MediaType.APPLICATION_JSON));
+        String content = resultActions.andDo(print())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        this.token = "Bearer " + new JSONObject(content).getJSONObject("data").getString("token");
+    }
+
+    @Test
+    @DisplayName("Verify changes are recorded and read in batches")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void findChangesSuccess() throws Exception {
+        long head = head();
+
+        // Elder Wand goes from Albus to Harry: both wizards and the Elder Wand change.
+        mockMvc.perform(put(baseUrl + "/wizards/2/artifacts/1")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+        mockMvc.perform(delete(baseUrl + "/artifacts/5")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        String firstBatch = mockMvc.perform(get(this.changesUrl)
+                        .param("since", String.valueOf(head))
+                        .param("limit", "2")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Find Changes Success"))
+                .andExpect(jsonPath("$.data.changes", hasSize(2)))
+                .andExpect(jsonPath("$.data.changes[0].type").value("WIZARD"))
+                .andExpect(jsonPath("$.data.changes[0].id").value(2))
+                .andExpect(jsonPath("$.data.changes[1].type").value("WIZARD"))
+                .andExpect(jsonPath("$.data.changes[1].id").value(1))
+                .andExpect(jsonPath("$.data.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString();
+        long next = new JSONObject(firstBatch).getJSONObject("data").getLong("next");
+
+        mockMvc.perform(get(this.changesUrl)
+                        .param("since", String.valueOf(next))
+                        .param("limit", "4")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.changes", hasSize(2)))
+                .andExpect(jsonPath("$.data.changes[0].type").value("ARTIFACT"))
+                .andExpect(jsonPath("$.data.changes[0].id").value(1))
+                .andExpect(jsonPath("$.data.changes[1].type").value("ARTIFACT"))
+                .andExpect(jsonPath("$.data.changes[1].id").value(5))
+                .andExpect(jsonPath("$.data.changes[1].operation").value("DELETE"))
+                .andExpect(jsonPath("$.data.hasMore").value(false));
+        assertThat(head()).isEqualTo(next + 2);
+    }
+
+    @Test
+    @DisplayName("Verify find changes error when since is negative")
+    void findChangesErrorWhenSinceNegative() throws Exception {
+        mockMvc.perform(get(this.changesUrl)
+                        .param("since", "-1")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+
+    @Test
+    @DisplayName("Verify find changes error when since is older than the retained log")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void findChangesErrorWhenSincePruned() throws Exception {
+        long head = head();
+        mockMvc.perform(delete(baseUrl + "/artifacts/4")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+        mockMvc.perform(delete(baseUrl + "/artifacts/5")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        // Everything but the newest entry goes.
+        assertThat(changeService.prune(Instant.now().plusSeconds(1))).isGreaterThan(0);
+
+        mockMvc.perform(get(this.changesUrl)
+                        .param("since", String.valueOf(head))
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+        mockMvc.perform(get(this.changesUrl)
+                        .param("since", String.valueOf(head() - 1))
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.changes", hasSize(1)))
+                .andExpect(jsonPath("$.data.changes[0].id").value(5));
+    }
+
+    @Test
+    @DisplayName("Verify committed changes are pushed to stream subscribers")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void streamChangesSuccess() throws Exception {
+        MvcResult stream = mockMvc.perform(get(this.changesUrl + "/stream")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(delete(baseUrl + "/artifacts/5")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        MockHttpServletResponse response = stream.getResponse();
+        for (int attempt = 0; attempt < 50 && !response.getContentAsString().contains("DELETE"); attempt++) {
+            Thread.sleep(100);
+        }
+        assertThat(response.getContentAsString())
+                .contains("event:change")
+                .contains("\"type\":\"ARTIFACT\",\"id\":5,\"operation\":\"DELETE\"");
+    }
+
+    private long head() throws Exception {
+        String content = mockMvc.perform(get(this.changesUrl)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.changes", hasSize(0)))
+                .andReturn().getResponse().getContentAsString();
+        return new JSONObject(content).getJSONObject("data").getLong("next");
+    }
+}
@@ -22,6 +22,7 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -79,6 +80,26 @@ public class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$.data.roles").value("admin user"));
     }
 
+    @Test
+    @DisplayName("Verify find user by ID with sparse fields success")
+    void findUserFieldsByIdSuccess() throws Exception {
+        mockMvc.perform(get(this.usersUrl + "/1")
+                        .param("fields", "username")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find User Success"))
+                .andExpect(jsonPath("$.data.id").value(1))
+                .andExpect(jsonPath("$.data.username").value("simon"))
+                .andExpect(jsonPath("$.data.roles").doesNotExist());
+
+        mockMvc.perform(get(this.usersUrl + "/1")
+                        .param("fields", "password")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Verify find user by ID error when user ID not exist")
     void findUserByIdErrorWhenUserIdNotExist() throws Exception {
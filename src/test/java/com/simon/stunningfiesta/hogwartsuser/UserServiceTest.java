@@ -1,16 +1,25 @@
 package com.simon.stunningfiesta.hogwartsuser;
 
+import com.simon.stunningfiesta.hogwartsuser.details.UserDetailsCache;
+import com.simon.stunningfiesta.security.Roles;
+import com.simon.stunningfiesta.security.VerifiedCredentialCache;
+import com.simon.stunningfiesta.system.NotFoundCache;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +38,18 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Spy
+    private NotFoundCache notFoundCache = new NotFoundCache(Duration.ofSeconds(30));
+
+    @Spy
+    private UserDetailsCache userDetailsCache = new UserDetailsCache(new SimpleMeterRegistry(), Duration.ofMinutes(5), 100);
+
+    @Mock
+    private VerifiedCredentialCache verifiedCredentialCache;
+
+    @Spy
+    private Roles roles = new Roles();
+
     @InjectMocks
     private UserService userService;
 
@@ -122,6 +143,7 @@ class UserServiceTest {
         assertThat(userBeenSaved.getUsername()).isEqualTo("new user");
         assertThat(userBeenSaved.isEnabled()).isEqualTo(false);
         assertThat(userBeenSaved.getRoles()).isEqualTo("blocked");
+        verify(verifiedCredentialCache).evict("test001");
     }
 
     @Test
@@ -154,4 +176,53 @@ class UserServiceTest {
         assertThat(exception).isInstanceOf(ObjectNotFoundException.class);
         assertThat(exception).hasMessage("Could not find user with Id 1 :(");
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadUserByUsernameIsCached() {
+        given(userRepository.findByUsername("test001")).willReturn(Optional.of(hogwartsUsers.get(0)));
+
+        UserDetails first = userService.loadUserByUsername("test001");
+        UserDetails second = userService.loadUserByUsername("test001");
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.isEnabled()).isTrue();
+        verify(userRepository, times(1)).findByUsername("test001");
+    }
+
+    @Test
+    void loadUserByUsernameCachesUnknownUsernames() {
+        given(userRepository.findByUsername("nobody")).willReturn(Optional.empty());
+
+        catchThrowable(() -> userService.loadUserByUsername("nobody"));
+        Throwable exception = catchThrowable(() -> userService.loadUserByUsername("nobody"));
+
+        assertThat(exception).isInstanceOf(UsernameNotFoundException.class);
+        verify(userRepository, times(1)).findByUsername("nobody");
+    }
+
+    @Test
+    void updateEvictsCachedUserDetails() {
+        HogwartsUser originUser = hogwartsUsers.get(0);
+        given(userRepository.findByUsername("test001")).willReturn(Optional.of(originUser));
+        userService.loadUserByUsername("test001");
+        given(userRepository.findById(1)).willReturn(Optional.of(originUser));
+        given(userRepository.save(originUser)).willReturn(originUser);
+
+        userService.update(1, new HogwartsUser().setUsername("test001").setEnabled(false).setRoles("manager"));
+        UserDetails reloaded = userService.loadUserByUsername("test001");
+
+        assertThat(reloaded.isEnabled()).isFalse();
+        verify(userRepository, times(2)).findByUsername("test001");
+    }
+
+    @Test
+    void updatePasswordStoresTheRehashedPassword() {
+        HogwartsUser originUser = hogwartsUsers.get(0);
+        given(userRepository.findById(1)).willReturn(Optional.of(originUser));
+
+        UserDetails upgraded = userService.updatePassword(new MyUserPrincipal(originUser, roles.ofUserRoles(originUser.getRoles())), "{argon2}rehashed");
+
+        assertThat(upgraded.getPassword()).isEqualTo("{argon2}rehashed");
+        assertThat(originUser.getPassword()).isEqualTo("{argon2}rehashed");
+    }
+}
@@ -0,0 +1,86 @@
+package com.simon.stunningfiesta.security;
+
+import com.simon.stunningfiesta.system.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    // Encodes by prefixing, blocks on "slow" until released.
+    private final PasswordEncoder delegate = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if ("slow".contentEquals(rawPassword)) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "encoded:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BoundedPasswordEncoder encoder =
+            new BoundedPasswordEncoder(delegate, meterRegistry, 1, 1, Duration.ofMillis(200));
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    void testEncodeAndMatchesDelegate() {
+        assertThat(encoder.encode("secret")).isEqualTo("encoded:secret");
+        assertThat(encoder.matches("secret", "encoded:secret")).isTrue();
+        assertThat(encoder.matches("wrong", "encoded:secret")).isFalse();
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "matches").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void testRejectsWhenSaturated() throws Exception {
+        // Occupies the only thread, then the only queue slot.
+        CompletableFuture.runAsync(() -> encoder.encode("slow"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture.runAsync(() -> catchThrowable(() -> encoder.encode("queued")));
+        Thread.sleep(50);
+
+        Throwable thrown = catchThrowable(() -> encoder.encode("rejected"));
+
+        assertThat(thrown).isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void testGivesUpAfterMaxWait() throws Exception {
+        CompletableFuture.runAsync(() -> encoder.encode("slow"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Throwable thrown = catchThrowable(() -> encoder.encode("waiting"));
+
+        assertThat(thrown).isInstanceOf(PasswordHashingBusyException.class);
+    }
+}
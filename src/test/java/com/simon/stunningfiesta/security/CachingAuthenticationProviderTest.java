@@ -0,0 +1,88 @@
+package com.simon.stunningfiesta.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAuthenticationProviderTest {
+
+    @Mock
+    AuthenticationProvider delegate;
+
+    private final VerifiedCredentialCache verifiedCredentialCache =
+            new VerifiedCredentialCache(new SimpleMeterRegistry(), Duration.ofMinutes(1), 100);
+
+    private Authentication verified() {
+        return UsernamePasswordAuthenticationToken.authenticated("john", null, AuthorityUtils.createAuthorityList("ROLE_admin"));
+    }
+
+    private Authentication request(String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated("john", password);
+    }
+
+    @Test
+    void testRepeatedCredentialsAreVerifiedOnce() {
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, verifiedCredentialCache);
+        given(delegate.authenticate(any())).willReturn(verified());
+
+        provider.authenticate(request("123456"));
+        Authentication second = provider.authenticate(request("123456"));
+
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(second.getName()).isEqualTo("john");
+        assertThat(second.getAuthorities()).extracting("authority").containsExactly("ROLE_admin");
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    void testOtherPasswordIsVerifiedAgain() {
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, verifiedCredentialCache);
+        given(delegate.authenticate(any())).willReturn(verified()).willThrow(new BadCredentialsException("Bad credentials"));
+
+        provider.authenticate(request("123456"));
+        Throwable thrown = catchThrowable(() -> provider.authenticate(request("654321")));
+
+        assertThat(thrown).isInstanceOf(BadCredentialsException.class);
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void testEvictedUserIsVerifiedAgain() {
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(delegate, verifiedCredentialCache);
+        given(delegate.authenticate(any())).willReturn(verified());
+        provider.authenticate(request("123456"));
+
+        verifiedCredentialCache.evict("john");
+        provider.authenticate(request("123456"));
+
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void testVerificationRacingAnEvictionIsNotCached() {
+        long generation = verifiedCredentialCache.generation();
+        String key = verifiedCredentialCache.key("john", "123456");
+
+        verifiedCredentialCache.evict("john");
+        verifiedCredentialCache.put(key, "john", verified(), generation);
+
+        assertThat(verifiedCredentialCache.get(key)).isNull();
+    }
+}
@@ -0,0 +1,79 @@
+package com.simon.stunningfiesta.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class PasswordEncodersTest {
+
+    // Cheap costs, these tests are about the prefixes and upgrades, not the hashing.
+    private final Map<String, PasswordEncoder> encoders = PasswordEncoders.byId(4, 1024, 1, 1000);
+
+    @Test
+    void testEncodesWithTheTargetPrefix() {
+        PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.PBKDF2, encoders);
+
+        String hash = encoder.encode("123456");
+
+        assertThat(hash).startsWith("{pbkdf2}");
+        assertThat(encoder.matches("123456", hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    void testMatchesAndUpgradesUnprefixedBCryptHashes() {
+        PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.BCRYPT, encoders);
+        String legacyHash = new BCryptPasswordEncoder(4).encode("123456");
+
+        assertThat(encoder.matches("123456", legacyHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacyHash)).isTrue();
+    }
+
+    @Test
+    void testUpgradesHashesOfAnotherEncoderOrALowerCost() {
+        String pbkdf2Hash = PasswordEncoders.delegating(PasswordEncoders.PBKDF2, encoders).encode("123456");
+        String weakBCryptHash = PasswordEncoders.delegating(PasswordEncoders.BCRYPT, encoders).encode("123456");
+        PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.BCRYPT,
+                PasswordEncoders.byId(5, 1024, 1, 1000));
+
+        assertThat(encoder.matches("123456", pbkdf2Hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(pbkdf2Hash)).isTrue();
+        assertThat(encoder.matches("123456", weakBCryptHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(weakBCryptHash)).isTrue();
+    }
+
+    @Test
+    void testUpgradesPbkdf2HashesOfFewerIterations() {
+        String weakHash = PasswordEncoders.delegating(PasswordEncoders.PBKDF2, encoders).encode("123456");
+        PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.PBKDF2,
+                PasswordEncoders.byId(4, 1024, 1, 2000));
+
+        assertThat(weakHash).startsWith("{pbkdf2}1000$");
+        assertThat(encoder.matches("123456", weakHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(weakHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(encoder.encode("123456"))).isFalse();
+    }
+
+    @Test
+    void testMatchesAndUpgradesPbkdf2HashesWithoutIterations() {
+        String legacyHash = "{pbkdf2}" + new Pbkdf2PasswordEncoder("", 16, 1000,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256).encode("123456");
+        PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.PBKDF2, encoders);
+
+        assertThat(encoder.matches("123456", legacyHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacyHash)).isTrue();
+    }
+
+    @Test
+    void testRejectsUnknownTargetEncoder() {
+        Throwable thrown = catchThrowable(() -> PasswordEncoders.delegating("md5", encoders));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,57 @@
+package com.simon.stunningfiesta.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports the CPU time one login (one matches) costs for each candidate password setting, to pick
+ * api.security.password.* for the machine it runs on. Skipped unless asked for:
+ * <pre>
+ * mvn test -Dtest=PasswordHashingBenchmark -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PasswordHashingBenchmark {
+    private static final int WARMUP = 3;
+
+    private static final int MEASURED = 10;
+
+    @Test
+    void reportCpuTimePerLogin() {
+        Map<String, PasswordEncoder> candidates = new LinkedHashMap<>();
+        for (int strength = 10; strength <= 14; strength++) {
+            candidates.put("bcrypt strength " + strength, PasswordEncoders.byId(strength, 1024, 1, 1000).get(PasswordEncoders.BCRYPT));
+        }
+        for (int[] argon2 : new int[][]{{19456, 2}, {47104, 1}, {65536, 3}}) {
+            candidates.put("argon2 " + argon2[0] + " KiB x" + argon2[1],
+                    PasswordEncoders.byId(4, argon2[0], argon2[1], 1000).get(PasswordEncoders.ARGON2));
+        }
+        for (int iterations : new int[]{310000, 600000}) {
+            candidates.put("pbkdf2 " + iterations + " iterations",
+                    PasswordEncoders.byId(4, 1024, 1, iterations).get(PasswordEncoders.PBKDF2));
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%-30s %12s %12s%n", "setting", "cpu ms/login", "wall ms/login");
+        candidates.forEach((setting, encoder) -> {
+            String hash = encoder.encode("correct horse battery staple");
+            for (int i = 0; i < WARMUP; i++) {
+                encoder.matches("correct horse battery staple", hash);
+            }
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long wallStart = System.nanoTime();
+            for (int i = 0; i < MEASURED; i++) {
+                encoder.matches("correct horse battery staple", hash);
+            }
+            double cpuMillis = (threads.getCurrentThreadCpuTime() - cpuStart) / 1e6 / MEASURED;
+            double wallMillis = (System.nanoTime() - wallStart) / 1e6 / MEASURED;
+            System.out.printf("%-30s %12.1f %12.1f%n", setting, cpuMillis, wallMillis);
+        });
+    }
+}
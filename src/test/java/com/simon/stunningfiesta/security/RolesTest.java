@@ -0,0 +1,79 @@
+package com.simon.stunningfiesta.security;
+
+import com.simon.stunningfiesta.hogwartsuser.HogwartsUser;
+import com.simon.stunningfiesta.hogwartsuser.MyUserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RolesTest {
+
+    // A registry per test instance: nothing is shared with other tests or contexts.
+    private final Roles roles = new Roles();
+
+    private final RoleAuthorizationManager admin = RoleAuthorizationManager.hasAuthority(roles, "ROLE_admin");
+
+    private boolean granted(Authentication authentication) {
+        return admin.check(() -> authentication, null).isGranted();
+    }
+
+    @Test
+    void testUserRolesAndClaimShareAuthorities() {
+        RoleSet userRoles = roles.ofUserRoles("admin user");
+        RoleSet claimRoles = roles.ofClaim("ROLE_admin ROLE_user");
+
+        assertThat(userRoles.authorities()).extracting("authority").containsExactly("ROLE_admin", "ROLE_user");
+        assertThat(claimRoles.authorities().get(0)).isSameAs(userRoles.authorities().get(0));
+        assertThat(roles.ofUserRoles("admin user")).isSameAs(userRoles);
+        assertThat(userRoles.has(roles.role("ROLE_user"))).isTrue();
+        assertThat(userRoles.has(roles.role("ROLE_moderator"))).isFalse();
+    }
+
+    @Test
+    void testChecksUserPrincipalRoles() {
+        MyUserPrincipal adminUser = new MyUserPrincipal(new HogwartsUser().setUsername("john").setRoles("admin user"),
+                roles.ofUserRoles("admin user"));
+        MyUserPrincipal plainUser = new MyUserPrincipal(new HogwartsUser().setUsername("eric").setRoles("user"),
+                roles.ofUserRoles("user"));
+
+        assertThat(granted(UsernamePasswordAuthenticationToken.authenticated(adminUser, null, adminUser.getAuthorities()))).isTrue();
+        assertThat(granted(UsernamePasswordAuthenticationToken.authenticated(plainUser, null, plainUser.getAuthorities()))).isFalse();
+    }
+
+    @Test
+    void testChecksTokenRoles() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("john")
+                .issuedAt(Instant.now())
+                .claim(RoleJwtAuthenticationConverter.AUTHORITIES_CLAIM, "ROLE_admin ROLE_user")
+                .build();
+
+        Authentication authentication = new RoleJwtAuthenticationConverter(roles).convert(jwt);
+
+        assertThat(authentication.getName()).isEqualTo("john");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_admin", "ROLE_user");
+        assertThat(granted(authentication)).isTrue();
+    }
+
+    @Test
+    void testFallsBackToAuthorityStrings() {
+        assertThat(granted(new TestingAuthenticationToken("john", null, "ROLE_admin"))).isTrue();
+        assertThat(granted(new TestingAuthenticationToken("eric", null, "ROLE_user"))).isFalse();
+    }
+
+    @Test
+    void testChecksPrincipalWithoutParsedRolesByAuthorityStrings() {
+        // As after deserialization, which drops the parsed roles.
+        MyUserPrincipal adminUser = new MyUserPrincipal(new HogwartsUser().setUsername("john").setRoles("admin user"), null);
+
+        assertThat(adminUser.getAuthorities()).extracting("authority").containsExactly("ROLE_admin", "ROLE_user");
+        assertThat(granted(UsernamePasswordAuthenticationToken.authenticated(adminUser, null, adminUser.getAuthorities()))).isTrue();
+    }
+}
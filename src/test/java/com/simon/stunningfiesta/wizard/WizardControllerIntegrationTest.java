@@ -1,10 +1,22 @@
 package com.simon.stunningfiesta.wizard;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
 import com.simon.stunningfiesta.system.StatusCode;
 import com.simon.stunningfiesta.wizard.converters.WizardToWizardDtoConverter;
+import com.simon.stunningfiesta.wizard.purge.WizardPurger;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.hamcrest.Matchers;
+import org.json.JSONArray;
 import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
@@ -13,16 +25,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -47,6 +79,35 @@ public class WizardControllerIntegrationTest {
     @Autowired
     private WizardToWizardDtoConverter wizardToWizardDtoConverter;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Purges on the request thread, they are over by the time the DELETE answers. They start once the delete has
+    // committed, so each batch needs a transaction of its own.
+    @TestConfiguration
+    static class SynchronousPurgeConfiguration {
+        @Bean
+        @Primary
+        WizardPurger synchronousWizardPurger(WizardRepository wizardRepository,
+                                             ArtifactRepository artifactRepository,
+                                             PlatformTransactionManager transactionManager,
+                                             ArtifactSearchIndex artifactSearchIndex,
+                                             ImageBlobStore imageBlobStore,
+                                             CatalogCache catalogCache,
+                                             CatalogVersion catalogVersion,
+                                             ChangeService changeService) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            return new WizardPurger(wizardRepository, artifactRepository, transactionTemplate, artifactSearchIndex,
+                    imageBlobStore, catalogCache, catalogVersion, changeService, 1, Runnable::run);
+        }
+    }
+
+    // Created by the test itself, deleted after it so the seeded wizards and artifacts stay as they are.
+    private final List<Integer> createdWizardIds = new ArrayList<>();
+
+    private final List<Integer> createdArtifactIds = new ArrayList<>();
+
     @BeforeEach
     void setUp() throws Exception {
         ResultActions resultActions = this.mockMvc.perform(post(baseUrl + "/users/login")
@@ -59,6 +120,17 @@ public class WizardControllerIntegrationTest {
         this.token = "Bearer " + new JSONObject(content).getJSONObject("data").getString("token");
     }
 
+    // Whatever the test already deleted answers 404, which is fine.
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Integer artifactId : createdArtifactIds) {
+            mockMvc.perform(delete(baseUrl + "/artifacts/" + artifactId).header(HttpHeaders.AUTHORIZATION, token));
+        }
+        for (Integer wizardId : createdWizardIds) {
+            mockMvc.perform(delete(this.wizardsUrl + "/" + wizardId).header(HttpHeaders.AUTHORIZATION, token));
+        }
+    }
+
     @Test
     @DisplayName("Verify find all wizard success")
     void findAllWizardsSuccess() throws Exception {
@@ -71,6 +143,141 @@ public class WizardControllerIntegrationTest {
                 .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_WIZARD_NUM)));
     }
 
+    @Test
+    @DisplayName("Verify find all wizards counts artifacts without loading them")
+    void findAllWizardsLoadsNoArtifacts() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            mockMvc.perform(get(this.wizardsUrl)
+                            .header(HttpHeaders.AUTHORIZATION, token)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_WIZARD_NUM)))
+                    .andExpect(jsonPath("$.data[0].numbersOfArtifacts").isNumber());
+            assertThat(statistics.getEntityLoadCount()).isZero();
+            assertThat(statistics.getCollectionFetchCount()).isZero();
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @DisplayName("Verify expanding the artifacts of all wizards costs one more query")
+    void findAllWizardsExpandArtifactsSuccess() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        addArtifact("Spectrespecs", wizardId);
+        addArtifact("Radish Earrings", wizardId);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            mockMvc.perform(get(this.wizardsUrl)
+                            .param("expand", "artifacts")
+                            .header(HttpHeaders.AUTHORIZATION, token)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data[?(@.id == %d)].artifacts[*].name", wizardId)
+                            .value(Matchers.containsInAnyOrder("Spectrespecs", "Radish Earrings")))
+                    .andExpect(jsonPath("$.data[?(@.id == %d)].artifacts[*].owner", wizardId)
+                            .value(Matchers.everyItem(Matchers.nullValue())));
+            assertThat(statistics.getCollectionFetchCount()).isZero();
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @DisplayName("Verify find wizard by id with expanded artifacts success")
+    void findWizardByIdExpandArtifactsSuccess() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        addArtifact("Spectrespecs", wizardId);
+        addArtifact("Radish Earrings", wizardId);
+
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .param("expand", "artifacts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.data.numbersOfArtifacts").value(2))
+                .andExpect(jsonPath("$.data.artifacts", Matchers.hasSize(2)));
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.artifacts").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Verify find the artifacts of a wizard page by page")
+    void findWizardArtifactsSuccess() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        Integer firstArtifactId = addArtifact("Spectrespecs", wizardId);
+        Integer secondArtifactId = addArtifact("Radish Earrings", wizardId);
+
+        String content = mockMvc.perform(get(this.wizardsUrl + "/" + wizardId + "/artifacts")
+                        .param("limit", "1")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$.data.content[0].id").value(firstArtifactId))
+                .andExpect(jsonPath("$.data.nextCursor").isString())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = new JSONObject(content).getJSONObject("data").getString("nextCursor");
+
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId + "/artifacts")
+                        .param("after", cursor)
+                        .param("limit", "2")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$.data.content[0].id").value(secondArtifactId))
+                .andExpect(jsonPath("$.data.nextCursor").isEmpty());
+        mockMvc.perform(get(this.wizardsUrl + "/123/artifacts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND));
+    }
+
+    @Test
+    @DisplayName("Verify find wizards by ids keeps the requested order and reports missing ids")
+    void findWizardsByIdsSuccess() throws Exception {
+        Integer lunaId = addWizard("Luna Lovegood");
+        addArtifact("Spectrespecs", lunaId);
+        addArtifact("Radish Earrings", lunaId);
+        Integer ginnyId = addWizard("Ginny Weasley");
+
+        mockMvc.perform(get(this.wizardsUrl)
+                        .param("ids", ginnyId + ",123," + lunaId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find Many Success"))
+                .andExpect(jsonPath("$.data.items", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data.items[0].id").value(ginnyId))
+                .andExpect(jsonPath("$.data.items[0].numbersOfArtifacts").value(0))
+                .andExpect(jsonPath("$.data.items[1].id").value(lunaId))
+                .andExpect(jsonPath("$.data.items[1].numbersOfArtifacts").value(2))
+                .andExpect(jsonPath("$.data.missing", Matchers.contains(123)));
+    }
+
+    @Test
+    @DisplayName("Verify find all wizards with sparse fields success")
+    void findAllWizardFieldsSuccess() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        addArtifact("Spectrespecs", wizardId);
+        addArtifact("Radish Earrings", wizardId);
+
+        mockMvc.perform(get(this.wizardsUrl)
+                        .param("fields", "numbersOfArtifacts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find All Success"))
+                .andExpect(jsonPath("$.data[?(@.id == %d)].numbersOfArtifacts", wizardId).value(Matchers.contains(2)))
+                .andExpect(jsonPath("$.data[*].name").doesNotExist());
+    }
+
     @Test
     @DisplayName("Verify find wizard by ID success")
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
@@ -231,6 +438,60 @@ public class WizardControllerIntegrationTest {
                 .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_WIZARD_NUM - 1)));
     }
 
+    @Test
+    @DisplayName("Verify delete wizard with UNASSIGN keeps its artifacts")
+    void deleteWizardUnassignSuccess() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        Integer artifactId = addArtifact("Spectrespecs", wizardId);
+
+        mockMvc.perform(delete(this.wizardsUrl + "/" + wizardId).param("mode", "UNASSIGN")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Delete Wizard Success"));
+
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND));
+        mockMvc.perform(get(baseUrl + "/artifacts/" + artifactId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.data.owner").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Verify delete wizard with PURGE removes its artifacts in the background")
+    void deleteWizardPurgeSuccess() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        Integer firstArtifactId = addArtifact("Spectrespecs", wizardId);
+        Integer secondArtifactId = addArtifact("Radish Earrings", wizardId);
+
+        mockMvc.perform(delete(this.wizardsUrl + "/" + wizardId).param("mode", "PURGE")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Delete Wizard Accepted"))
+                .andExpect(jsonPath("$.data.wizardId").value(wizardId))
+                .andExpect(jsonPath("$.data.total").value(2));
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND));
+
+        // One artifact per batch, then the wizard row.
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId + "/purge")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.state").value("DONE"))
+                .andExpect(jsonPath("$.data.removed").value(2));
+        for (Integer artifactId : List.of(firstArtifactId, secondArtifactId)) {
+            mockMvc.perform(get(baseUrl + "/artifacts/" + artifactId)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND));
+        }
+    }
+
     @Test
     @DisplayName("Verify delete wizard error when wizard Id not exist")
     void deleteWizardErrorWhenWizardIdNotExist() throws Exception {
@@ -251,6 +512,40 @@ public class WizardControllerIntegrationTest {
                 .andExpect(jsonPath("$.data", Matchers.hasSize(DEFAULT_WIZARD_NUM)));
     }
 
+    @Test
+    @DisplayName("Verify find wizard by ID returns 304 until its artifacts change")
+    void findWizardByIdNotModified() throws Exception {
+        Integer wizardId = addWizard("Luna Lovegood");
+        Integer artifactId = addArtifact("Spectrespecs", null);
+
+        String etag = mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put(this.wizardsUrl + "/" + wizardId + "/artifacts/" + artifactId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        mockMvc.perform(get(this.wizardsUrl + "/" + wizardId)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(etag)));
+    }
+
     @Test
     @DisplayName("Verify assign artifact success")
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
@@ -289,4 +584,170 @@ public class WizardControllerIntegrationTest {
                 .andExpect(jsonPath("$.message").value("Could not find artifact with Id 999 :("))
                 .andExpect(jsonPath("$.data").isEmpty());
     }
+
+    @Test
+    @DisplayName("Verify assign artifacts in batch success")
+    void assignArtifactsSuccess() throws Exception {
+        Integer lunaId = addWizard("Luna Lovegood");
+        Integer ginnyId = addWizard("Ginny Weasley");
+        Integer choId = addWizard("Cho Chang");
+        Integer spectrespecsId = addArtifact("Spectrespecs", lunaId);
+        Integer broomId = addArtifact("Nimbus 2000", ginnyId);
+        addArtifact("Diadem", choId);
+        Integer lightId = addArtifact("Light", null);
+        // Warm the cache with the old owner and count.
+        mockMvc.perform(get(baseUrl + "/artifacts/" + spectrespecsId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.owner.name").value("Luna Lovegood"));
+
+        // One artifact from each of the other two wizards and an unowned one go to Cho.
+        mockMvc.perform(put(this.wizardsUrl + "/" + choId + "/artifacts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(spectrespecsId, broomId, lightId))))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Assign Artifacts Success"))
+                .andExpect(jsonPath("$.data.affected").value(3));
+
+        mockMvc.perform(get(baseUrl + "/artifacts/" + spectrespecsId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.owner.name").value("Cho Chang"))
+                .andExpect(jsonPath("$.data.owner.numbersOfArtifacts").value(4));
+        mockMvc.perform(get(this.wizardsUrl)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data[?(@.id == %d)].numbersOfArtifacts", lunaId).value(Matchers.contains(0)))
+                .andExpect(jsonPath("$.data[?(@.id == %d)].numbersOfArtifacts", ginnyId).value(Matchers.contains(0)))
+                .andExpect(jsonPath("$.data[?(@.id == %d)].numbersOfArtifacts", choId).value(Matchers.contains(4)));
+    }
+
+    @Test
+    @DisplayName("Verify assign artifacts in batch moves nothing when an artifact ID does not exist")
+    void assignArtifactsErrorWhenArtifactIdNotExist() throws Exception {
+        Integer lunaId = addWizard("Luna Lovegood");
+        Integer choId = addWizard("Cho Chang");
+        Integer artifactId = addArtifact("Spectrespecs", lunaId);
+
+        mockMvc.perform(put(this.wizardsUrl + "/" + choId + "/artifacts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(artifactId, 999))))
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND))
+                .andExpect(jsonPath("$.message").value("Could not find artifact with Id 999 :("));
+
+        mockMvc.perform(get(baseUrl + "/artifacts/" + artifactId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.owner.name").value("Luna Lovegood"));
+    }
+
+    @Test
+    @DisplayName("Verify concurrent artifact transfers lose no updates")
+    void assignArtifactConcurrentlySuccess() throws Exception {
+        int threads = 8;
+        int transfersPerThread = 10;
+        List<Integer> wizardIds = List.of(addWizard("Luna Lovegood"), addWizard("Ginny Weasley"), addWizard("Cho Chang"));
+        List<Integer> artifactIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            artifactIds.add(addArtifact("Artifact " + i, wizardIds.get(i % wizardIds.size())));
+        }
+        // Warm the caches, the transfers have to evict whatever they change.
+        for (Integer wizardId : wizardIds) {
+            mockMvc.perform(get(this.wizardsUrl + "/" + wizardId).header(HttpHeaders.AUTHORIZATION, token));
+        }
+        for (Integer artifactId : artifactIds) {
+            mockMvc.perform(get(baseUrl + "/artifacts/" + artifactId));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<Integer, Integer>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                Map<Integer, Integer> statuses = new HashMap<>();
+                start.await();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    Integer wizardId = wizardIds.get(ThreadLocalRandom.current().nextInt(wizardIds.size()));
+                    Integer artifactId = artifactIds.get(ThreadLocalRandom.current().nextInt(artifactIds.size()));
+                    int status = mockMvc.perform(put(this.wizardsUrl + "/" + wizardId + "/artifacts/" + artifactId)
+                                    .header(HttpHeaders.AUTHORIZATION, token))
+                            .andReturn().getResponse().getStatus();
+                    statuses.merge(status, 1, Integer::sum);
+                }
+                return statuses;
+            }));
+        }
+        start.countDown();
+        Map<Integer, Integer> statuses = new HashMap<>();
+        for (Future<Map<Integer, Integer>> result : results) {
+            result.get(2, TimeUnit.MINUTES).forEach((status, count) -> statuses.merge(status, count, Integer::sum));
+        }
+        executor.shutdown();
+
+        assertThat(statuses).containsOnlyKeys(200);
+
+        // Counts from the database, not cached.
+        String content = mockMvc.perform(get(this.wizardsUrl)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        JSONArray wizards = new JSONObject(content).getJSONArray("data");
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < wizards.length(); i++) {
+            if (wizardIds.contains(wizards.getJSONObject(i).getInt("id"))) {
+                counts.put(wizards.getJSONObject(i).getInt("id"), wizards.getJSONObject(i).getInt("numbersOfArtifacts"));
+            }
+        }
+        assertThat(counts.values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(artifactIds.size());
+        // Cached reads must agree with them.
+        for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+            mockMvc.perform(get(this.wizardsUrl + "/" + count.getKey())
+                            .header(HttpHeaders.AUTHORIZATION, token)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.data.numbersOfArtifacts").value(count.getValue()));
+        }
+        for (Integer artifactId : artifactIds) {
+            String artifact = mockMvc.perform(get(baseUrl + "/artifacts/" + artifactId)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andReturn().getResponse().getContentAsString();
+            JSONObject owner = new JSONObject(artifact).getJSONObject("data").getJSONObject("owner");
+            assertThat(owner.getInt("numbersOfArtifacts")).isEqualTo(counts.get(owner.getInt("id")));
+        }
+    }
+
+    private Integer addWizard(String name) throws Exception {
+        String content = mockMvc.perform(post(this.wizardsUrl)
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .content(objectMapper.writeValueAsString(wizardToWizardDtoConverter.convert(new Wizard().withName(name))))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andReturn().getResponse().getContentAsString();
+        Integer wizardId = new JSONObject(content).getJSONObject("data").getInt("id");
+        createdWizardIds.add(wizardId);
+        return wizardId;
+    }
+
+    // Adds an artifact, and gives it to the wizard unless ownerId is null.
+    private Integer addArtifact(String name, Integer ownerId) throws Exception {
+        String content = mockMvc.perform(post(baseUrl + "/artifacts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .content(new JSONObject()
+                                .put("name", name)
+                                .put("description", "Description")
+                                .put("imageUrl", "ImageUrl")
+                                .toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andReturn().getResponse().getContentAsString();
+        Integer artifactId = new JSONObject(content).getJSONObject("data").getInt("id");
+        createdArtifactIds.add(artifactId);
+        if (ownerId != null) {
+            mockMvc.perform(put(this.wizardsUrl + "/" + ownerId + "/artifacts/" + artifactId)
+                            .header(HttpHeaders.AUTHORIZATION, token))
+                    .andExpect(jsonPath("$.flag").value(true));
+        }
+        return artifactId;
+    }
 }
@@ -5,6 +5,10 @@ import com.simon.stunningfiesta.artifact.Artifact;
 import com.simon.stunningfiesta.system.StatusCode;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
 import com.simon.stunningfiesta.wizard.converters.WizardToWizardDtoConverter;
+import com.simon.stunningfiesta.wizard.leaderboard.WizardRank;
+import com.simon.stunningfiesta.wizard.purge.WizardPurge;
+import com.simon.stunningfiesta.wizard.suggest.WizardSuggestion;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +17,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -23,8 +28,12 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)
@@ -88,13 +97,16 @@ class WizardControllerTest {
 
     @Test
     void findAllWizardsSuccess() throws Exception {
-        given(wizardService.findAll()).willReturn(wizards);
+        given(wizardService.findAllSummaries()).willReturn(List.of(
+                new WizardSummary(1, albusDumledore.getName(), 0, (long) albusDumledore.getNumberOfArtifacts()),
+                new WizardSummary(2, "Harry Potter", 0, 1L)));
 
         mockMvc.perform(get(this.baseUrl)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
                 .andExpect(jsonPath("$.message").value("Find All Success"))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(2)))
                 .andExpect(jsonPath("$.data[0].name").value(albusDumledore.getName()))
                 .andExpect(jsonPath("$.data[0].numbersOfArtifacts")
                         .value(albusDumledore.getNumberOfArtifacts()));
@@ -102,7 +114,8 @@ class WizardControllerTest {
 
     @Test
     void findWizardByIdSuccess() throws Exception {
-        given(wizardService.findById(123)).willReturn(harryPotter);
+        given(wizardService.findSummaryById(123))
+                .willReturn(new WizardSummary(123, harryPotter.getName(), 0, (long) harryPotter.getNumberOfArtifacts()));
 
         mockMvc.perform(get(this.baseUrl + "/123")
                         .accept(MediaType.APPLICATION_JSON))
@@ -116,7 +129,7 @@ class WizardControllerTest {
 
     @Test
     void findWizardByIdErrorWhenWizardIdNotExist() throws Exception {
-        given(wizardService.findById(123)).willThrow(new ObjectNotFoundException("wizard", 123));
+        given(wizardService.findSummaryById(123)).willThrow(new ObjectNotFoundException("wizard", 123));
 
         mockMvc.perform(get(this.baseUrl + "/123")
                         .accept(MediaType.APPLICATION_JSON))
@@ -166,6 +179,7 @@ class WizardControllerTest {
 
         given(wizardService.update(anyInt(), any(Wizard.class)))
                 .willReturn(newWizard.withId(123));
+        given(wizardService.findSummaryById(123)).willReturn(new WizardSummary(123, "New Wizard", 1, 0L));
 
         WizardDto newWizardDto = wizardToWizardDtoConverter.convert(newWizard);
 
@@ -230,7 +244,7 @@ class WizardControllerTest {
     @Test
     void deleteWizardErrorWhenWizardIdNotExist() throws Exception {
         doThrow(new ObjectNotFoundException("wizard", 123))
-                .when(wizardService).deleteById(123);
+                .when(wizardService).deleteById(123, WizardDeleteMode.CASCADE);
 
         mockMvc.perform(delete(this.baseUrl + "/123")
                         .accept(MediaType.APPLICATION_JSON))
@@ -240,6 +254,20 @@ class WizardControllerTest {
                 .andExpect(jsonPath("$.data").isEmpty());
     }
 
+    @Test
+    void deleteWizardPurgeAccepted() throws Exception {
+        given(wizardService.findPurge(123)).willReturn(new WizardPurge(123, WizardPurge.State.RUNNING, 2, 0));
+
+        mockMvc.perform(delete(this.baseUrl + "/123").param("mode", "PURGE")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Delete Wizard Accepted"))
+                .andExpect(jsonPath("$.data.wizardId").value(123))
+                .andExpect(jsonPath("$.data.state").value("RUNNING"))
+                .andExpect(jsonPath("$.data.total").value(2));
+        verify(wizardService).deleteById(123, WizardDeleteMode.PURGE);
+    }
+
     @Test
     void assignArtifactSuccess() throws Exception {
         doNothing().when(wizardService).assignArtifact(2, 1);
@@ -272,4 +300,129 @@ class WizardControllerTest {
                 .andExpect(jsonPath("$.message").value("Could not find artifact with Id 1 :("))
                 .andExpect(jsonPath("$.data").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void assignArtifactsSuccess() throws Exception {
+        given(wizardService.assignArtifacts(2, List.of(1, 3))).willReturn(2);
+
+        mockMvc.perform(put(this.baseUrl + "/2/artifacts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 3]")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Assign Artifacts Success"))
+                .andExpect(jsonPath("$.data.affected").value(2));
+    }
+
+    @Test
+    void findTopWizardsSuccess() throws Exception {
+        given(wizardService.findTop(2)).willReturn(List.of(
+                new WizardRank(1, "Albus Dumledore", 2),
+                new WizardRank(2, "Harry Potter", 1)));
+
+        mockMvc.perform(get(this.baseUrl + "/top").param("n", "2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find Top Success"))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data[0].name").value("Albus Dumledore"))
+                .andExpect(jsonPath("$.data[0].numbersOfArtifacts").value(2));
+    }
+
+    @Test
+    void findTopWizardsDefaultsAndCapsN() throws Exception {
+        given(wizardService.findTop(anyInt())).willReturn(List.of());
+
+        mockMvc.perform(get(this.baseUrl + "/top").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true));
+        mockMvc.perform(get(this.baseUrl + "/top").param("n", "1000").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        verify(wizardService).findTop(WizardController.TOP_DEFAULT);
+        verify(wizardService).findTop(WizardController.TOP_MAX);
+    }
+
+    @Test
+    void findTopWizardsErrorWhenNNotPositive() throws Exception {
+        mockMvc.perform(get(this.baseUrl + "/top").param("n", "0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data").value("n must be positive."));
+
+        verifyNoInteractions(wizardService);
+    }
+
+    @Test
+    void suggestWizardsSuccess() throws Exception {
+        given(wizardService.suggest("har", 5)).willReturn(List.of(new WizardSuggestion(2, "Harry Potter")));
+
+        mockMvc.perform(get(this.baseUrl + "/suggest").param("prefix", "har").param("limit", "5")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Suggest Success"))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id").value(2))
+                .andExpect(jsonPath("$.data[0].name").value("Harry Potter"));
+    }
+
+    @Test
+    void suggestWizardsDefaultsAndCapsLimit() throws Exception {
+        given(wizardService.suggest(any(), anyInt())).willReturn(List.of());
+
+        mockMvc.perform(get(this.baseUrl + "/suggest").param("prefix", "har").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true));
+        mockMvc.perform(get(this.baseUrl + "/suggest").param("prefix", "har").param("limit", "1000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true));
+
+        verify(wizardService).suggest("har", WizardController.SUGGEST_DEFAULT);
+        verify(wizardService).suggest("har", WizardController.SUGGEST_MAX);
+    }
+
+    @Test
+    void suggestWizardsErrorWhenPrefixBlank() throws Exception {
+        mockMvc.perform(get(this.baseUrl + "/suggest").param("prefix", "  ").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data").value("prefix must not be blank."));
+
+        verifyNoInteractions(wizardService);
+    }
+
+    @Test
+    void suggestWizardsErrorWhenLimitNotPositive() throws Exception {
+        mockMvc.perform(get(this.baseUrl + "/suggest").param("prefix", "har").param("limit", "-1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data").value("limit must be positive."));
+
+        verifyNoInteractions(wizardService);
+    }
+
+    @Test
+    void assignArtifactRetriesConcurrentTransfer() throws Exception {
+        doThrow(new OptimisticLockingFailureException("Artifacts [1] changed owner concurrently"))
+                .doNothing()
+                .when(wizardService).assignArtifact(2, 1);
+
+        mockMvc.perform(put(this.baseUrl + "/2/artifacts/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Assign Artifact Success"));
+        verify(wizardService, times(2)).assignArtifact(2, 1);
+    }
+
+    @Test
+    void assignArtifactErrorWhenConflictPersists() throws Exception {
+        doThrow(new OptimisticLockingFailureException("Artifacts [1] changed owner concurrently"))
+                .when(wizardService).assignArtifact(2, 1);
+
+        mockMvc.perform(put(this.baseUrl + "/2/artifacts/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.CONFLICT))
+                .andExpect(jsonPath("$.message").value("The resource was changed concurrently, please try again."));
+        verify(wizardService, times(5)).assignArtifact(2, 1);
+    }
+}
@@ -1,18 +1,38 @@
 package com.simon.stunningfiesta.wizard;
 
 import com.simon.stunningfiesta.artifact.Artifact;
+import com.simon.stunningfiesta.artifact.ArtifactRef;
 import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import com.simon.stunningfiesta.artifact.ArtifactSummary;
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeEntityType;
+import com.simon.stunningfiesta.change.ChangeOperation;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.system.NotFoundCache;
 import com.simon.stunningfiesta.system.exception.ObjectNotFoundException;
+import com.simon.stunningfiesta.wizard.leaderboard.WizardLeaderboard;
+import com.simon.stunningfiesta.wizard.purge.WizardPurger;
+import com.simon.stunningfiesta.wizard.suggest.WizardNameIndex;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -28,6 +48,36 @@ class WizardServiceTest {
     @Mock
     private ArtifactRepository artifactRepository;
 
+    @Mock
+    private ArtifactSearchIndex artifactSearchIndex;
+
+    @Mock
+    private ImageBlobStore imageBlobStore;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private ChangeService changeService;
+
+    @Mock
+    private WizardLeaderboard wizardLeaderboard;
+
+    @Mock
+    private WizardNameIndex wizardNameIndex;
+
+    @Mock
+    private WizardPurger wizardPurger;
+
+    @Spy
+    private NotFoundCache notFoundCache = new NotFoundCache(Duration.ofSeconds(30));
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private WizardService wizardService;
     private List<Wizard> wizards;
@@ -107,6 +157,54 @@ class WizardServiceTest {
         verify(wizardRepository, times(1)).findById(2);
     }
 
+    @Test
+    public void testFindAllSummariesSuccess() {
+        given(wizardRepository.findAllSummaries()).willReturn(List.of(new WizardSummary(1, "Albus Dumledore", 0, 2L),
+                new WizardSummary(2, "Harry Potter", 0, 1L)));
+
+        List<WizardSummary> summaries = wizardService.findAllSummaries();
+
+        assertThat(summaries).extracting(WizardSummary::numberOfArtifacts).containsExactly(2L, 1L);
+        verify(wizardRepository, never()).findAll();
+    }
+
+    @Test
+    public void testFindArtifactsByOwnerIdsGroupsByOwner() {
+        given(artifactRepository.findSummariesByOwnerIds(List.of(1, 2))).willReturn(List.of(
+                new ArtifactSummary(1, "Elder Wand", "Description", "ImageUrl", null, 0, 1, "Albus Dumledore", 2L, 0),
+                new ArtifactSummary(2, "Invisibility Cloak", "Description", "ImageUrl", null, 0, 2, "Harry Potter", 1L, 0),
+                new ArtifactSummary(3, "Polymorph", "Description", "ImageUrl", null, 0, 1, "Albus Dumledore", 2L, 0)));
+
+        Map<Integer, List<ArtifactSummary>> artifacts = wizardService.findArtifactsByOwnerIds(List.of(1, 2));
+
+        assertThat(artifacts.get(1)).extracting(ArtifactSummary::id).containsExactly(1, 3);
+        assertThat(artifacts.get(2)).extracting(ArtifactSummary::id).containsExactly(2);
+        verify(artifactRepository, times(1)).findSummariesByOwnerIds(any());
+    }
+
+    @Test
+    public void testFindSummaryByIdSuccess() {
+        readThroughCatalogCache();
+        given(wizardRepository.findSummaryById(2)).willReturn(Optional.of(new WizardSummary(2, "Harry Potter", 0, 1L)));
+
+        WizardSummary summary = wizardService.findSummaryById(2);
+
+        assertThat(summary.name()).isEqualTo("Harry Potter");
+        assertThat(summary.numberOfArtifacts()).isEqualTo(1L);
+        assertThat(summary.etag()).isEqualTo("\"wizard-2-0\"");
+    }
+
+    @Test
+    public void testFindSummaryByIdErrorWhenIdNotExist() {
+        readThroughCatalogCache();
+        given(wizardRepository.findSummaryById(2)).willReturn(Optional.empty());
+
+        Throwable exception = catchThrowable(() -> wizardService.findSummaryById(2));
+
+        assertThat(exception).isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Could not find wizard with Id 2 :(");
+    }
+
     @Test
     public void testAddSuccess() {
         Wizard newWizard = new Wizard().withName("New wizard")
@@ -147,6 +245,12 @@ class WizardServiceTest {
         assertThat(updatedWizard.getArtifacts()).isEmpty();
         verify(wizardRepository, times(1)).findById(123);
         verify(wizardRepository, times(1)).save(wizard);
+        verify(catalogCache).evictWizard(123);
+        // A rename leaves the artifacts alone, they read the owner's name from the wizards cache.
+        verify(catalogCache, never()).evictArtifacts(any());
+        verify(changeService).record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, 123);
+        verify(changeService, never()).record(eq(ChangeEntityType.ARTIFACT), any(), anyCollection());
+        verify(wizardNameIndex).index(123, "New wizard");
     }
 
     @Test
@@ -165,79 +269,154 @@ class WizardServiceTest {
 
     @Test
     public void testDeleteSuccess() {
-        given(wizardRepository.findById(123)).willReturn(Optional.of(harryPotter));
-        doNothing().when(wizardRepository).deleteById(123);
+        given(wizardRepository.markDeleted(123)).willReturn(1);
+        given(artifactRepository.findIdsByOwnerIds(List.of(123))).willReturn(List.of(1, 2));
 
         wizardService.deleteById(123);
 
-        verify(wizardRepository, times(1)).findById(123);
-        verify(wizardRepository, times(1)).deleteById(123);
+        verify(artifactRepository, times(1)).deleteAllByOwnerId(123);
+        verify(wizardRepository, times(1)).deleteRowById(123);
+        verify(wizardRepository, never()).findById(any());
+        verify(artifactSearchIndex, times(1)).remove(1);
+        verify(artifactSearchIndex, times(1)).remove(2);
+        verify(catalogCache, times(1)).evictWizard(123);
+        verify(catalogCache, times(1)).evictArtifacts(List.of(1, 2));
+        verify(changeService, times(1)).record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, List.of(1, 2));
+        verify(changeService, times(1)).record(ChangeEntityType.WIZARD, ChangeOperation.DELETE, 123);
+        verify(wizardLeaderboard, times(1)).remove(123);
+        verify(wizardNameIndex, times(1)).remove(123);
+    }
+
+    @Test
+    public void testDeleteUnassignKeepsArtifacts() {
+        given(wizardRepository.markDeleted(123)).willReturn(1);
+        given(artifactRepository.findIdsByOwnerIds(List.of(123))).willReturn(List.of(1, 2));
+
+        wizardService.deleteById(123, WizardDeleteMode.UNASSIGN);
+
+        verify(artifactRepository, times(1)).unassignAllByOwnerId(123);
+        verify(artifactRepository, never()).deleteAllByOwnerId(any());
+        verify(wizardRepository, times(1)).deleteRowById(123);
+        verify(changeService, times(1)).record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, List.of(1, 2));
+        verifyNoInteractions(artifactSearchIndex);
+    }
+
+    @Test
+    public void testDeletePurgeOnlyMarksWizardDeleted() {
+        given(wizardRepository.markDeleted(123)).willReturn(1);
+
+        wizardService.deleteById(123, WizardDeleteMode.PURGE);
+
+        verify(wizardPurger, times(1)).start(123);
+        verify(wizardRepository, never()).deleteRowById(any());
+        verifyNoInteractions(artifactRepository);
+        verify(changeService, times(1)).record(ChangeEntityType.WIZARD, ChangeOperation.DELETE, 123);
     }
 
     @Test
     public void testDeleteErrorWhenIdNotExist() {
-        given(wizardRepository.findById(123)).willReturn(Optional.empty());
+        given(wizardRepository.markDeleted(123)).willReturn(0);
 
         Throwable exception = catchThrowable(() -> wizardService.deleteById(123));
 
         assertThat(exception.getMessage()).isEqualTo("Could not find wizard with Id 123 :(");
-        verify(wizardRepository, times(0)).deleteById(123);
+        verify(wizardRepository, never()).deleteRowById(any());
+        verifyNoInteractions(artifactRepository, changeService);
     }
 
     @Test
     public void testAssignArtifactSuccess() {
-        Artifact invisibilityCloak = new Artifact()
-                .withId(1)
-                .withName("Invisibility Cloak")
-                .withDescription("An invisibility cloak is used to make the wearer invisible")
-                .withImageUrl("ImageUrl");
-
-        Wizard albusDumledore = new Wizard()
-                .withId(1)
-                .withName("Albus Dumledore")
-                .addArtifacts(invisibilityCloak);
-        Wizard harryPotter = new Wizard()
-                .withId(2)
-                .withName("Harry Potter");
-
-        given(artifactRepository.findById(1)).willReturn(Optional.of(invisibilityCloak));
-        given(wizardRepository.findById(2)).willReturn(Optional.of(harryPotter));
+        Wizard harryPotter = new Wizard().withId(2).withName("Harry Potter");
+        given(artifactRepository.findRefsByIds(List.of(1)))
+                .willReturn(List.of(new ArtifactRef(1, "Invisibility Cloak", "Description", 1)));
+        given(wizardRepository.existsActiveById(2)).willReturn(true);
+        given(entityManager.getReference(Wizard.class, 2)).willReturn(harryPotter);
+        given(artifactRepository.updateOwnerByIds(List.of(1), 1, harryPotter)).willReturn(1);
         // when
         wizardService.assignArtifact(2, 1);
         // then
-        assertThat(invisibilityCloak.getOwner().getId()).isEqualTo(2);
-        assertThat(harryPotter.getArtifacts()).contains(invisibilityCloak);
-        assertThat(albusDumledore.getArtifacts()).doesNotContain(invisibilityCloak);
+        verify(artifactRepository, never()).findById(any());
+        verify(wizardRepository, never()).findById(any());
+        verify(wizardRepository).incrementVersions(Set.of(1, 2));
+        verify(catalogVersion).increment();
+        verify(catalogCache).evictWizards(Set.of(1, 2));
+        // The owners' other artifacts don't change.
+        verify(artifactRepository, never()).findIdsByOwnerIds(any());
+        verify(catalogCache).evictArtifacts(List.of(1));
+        verify(changeService).record(ChangeEntityType.WIZARD, ChangeOperation.UPSERT, Set.of(1, 2));
+        verify(changeService).record(ChangeEntityType.ARTIFACT, ChangeOperation.UPSERT, List.of(1));
+        verify(wizardLeaderboard).adjust(1, -1);
+        verify(wizardLeaderboard).adjust(2, 1);
     }
 
     @Test
-    public void testAssignArtifactErrorWhenWizardIdNotExist() {
-        Artifact invisibilityCloak = new Artifact()
-                .withId(1)
-                .withName("Invisibility Cloak")
-                .withDescription("An invisibility cloak is used to make the wearer invisible")
-                .withImageUrl("ImageUrl");
+    public void testAssignArtifactsSkipsArtifactsAlreadyOwned() {
+        given(artifactRepository.findRefsByIds(List.of(1, 5)))
+                .willReturn(List.of(new ArtifactRef(1, "Invisibility Cloak", "Description", 2),
+                        new ArtifactRef(5, "Light", "Description", null)));
+        given(wizardRepository.existsActiveById(2)).willReturn(true);
+        given(artifactRepository.updateOwnerByIds(List.of(5), null, null)).willReturn(1);
+        // when
+        int moved = wizardService.assignArtifacts(2, List.of(1, 5));
+        // then
+        assertThat(moved).isEqualTo(1);
+        verify(wizardRepository).incrementVersions(Set.of(2));
+        verify(catalogCache).evictArtifacts(List.of(5));
+    }
 
-        Wizard albusDumledore = new Wizard()
-                .withId(1)
-                .withName("Albus Dumledore")
-                .addArtifacts(invisibilityCloak);
+    @Test
+    public void testAssignArtifactErrorWhenMovedConcurrently() {
+        given(artifactRepository.findRefsByIds(List.of(1)))
+                .willReturn(List.of(new ArtifactRef(1, "Invisibility Cloak", "Description", 1)));
+        given(wizardRepository.existsActiveById(2)).willReturn(true);
+        // Another transaction moved it away from wizard 1 after it was read.
+        given(artifactRepository.updateOwnerByIds(List.of(1), 1, null)).willReturn(0);
+        // when
+        Throwable exception = catchThrowable(() -> wizardService.assignArtifact(2, 1));
+        // then
+        assertThat(exception).isInstanceOf(OptimisticLockingFailureException.class);
+        verify(wizardRepository, never()).incrementVersions(any());
+        verifyNoInteractions(changeService, catalogVersion, wizardLeaderboard);
+    }
 
-        given(artifactRepository.findById(1)).willReturn(Optional.of(invisibilityCloak));
-        given(wizardRepository.findById(2)).willReturn(Optional.empty());
+    @Test
+    public void testAssignArtifactErrorWhenWizardIdNotExist() {
+        given(artifactRepository.findRefsByIds(List.of(1)))
+                .willReturn(List.of(new ArtifactRef(1, "Invisibility Cloak", "Description", 1)));
+        given(wizardRepository.existsActiveById(2)).willReturn(false);
         // when
         Throwable exception = catchThrowable(() -> wizardService.assignArtifact(2, 1));
         // then
-        assertThat(invisibilityCloak.getOwner().getId()).isEqualTo(albusDumledore.getId());
         assertThat(exception).hasMessage("Could not find wizard with Id 2 :(");
+        verify(artifactRepository, never()).updateOwnerByIds(any(), any(), any());
+    }
+
+    @Test
+    public void testAssignArtifactErrorWhenOwnerBeingPurged() {
+        given(artifactRepository.findRefsByIds(List.of(1)))
+                .willReturn(List.of(new ArtifactRef(1, "Invisibility Cloak", "Description", 1)));
+        given(wizardRepository.existsActiveById(2)).willReturn(true);
+        given(wizardRepository.findDeletedIdsByIds(List.of(1))).willReturn(List.of(1));
+        // when
+        Throwable exception = catchThrowable(() -> wizardService.assignArtifact(2, 1));
+        // then
+        assertThat(exception).hasMessage("Could not find artifact with Id 1 :(");
+        verify(artifactRepository, never()).updateOwnerByIds(any(), any(), any());
+        verifyNoInteractions(changeService, catalogVersion, wizardLeaderboard);
     }
 
     @Test
     public void testAssignArtifactErrorWhenArtifactIdNotExist() {
-        given(artifactRepository.findById(1)).willReturn(Optional.empty());
+        given(artifactRepository.findRefsByIds(List.of(1))).willReturn(List.of());
         // when
         Throwable exception = catchThrowable(() -> wizardService.assignArtifact(2, 1));
         // then
         assertThat(exception).hasMessage("Could not find artifact with Id 1 :(");
+        verify(artifactRepository, never()).updateOwnerByIds(any(), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readThroughCatalogCache() {
+        given(catalogCache.get(any(), any(), any())).willAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(2)).get());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.simon.stunningfiesta.wizard.leaderboard;
+
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import com.simon.stunningfiesta.wizard.WizardSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class WizardLeaderboardTest {
+
+    @Mock
+    WizardRepository wizardRepository;
+
+    @InjectMocks
+    WizardLeaderboard wizardLeaderboard;
+
+    @BeforeEach
+    void setUp() {
+        given(wizardRepository.findAllSummaries()).willReturn(List.of(
+                new WizardSummary(1, "Albus Dumbledore", 0, 2L),
+                new WizardSummary(2, "Harry Potter", 0, 1L),
+                new WizardSummary(3, "Neville Longbottom", 0, 1L)));
+        wizardLeaderboard.rebuild();
+    }
+
+    @Test
+    void testTopOrdersByCountThenId() {
+        assertThat(wizardLeaderboard.top(10)).extracting(WizardRank::id).containsExactly(1, 2, 3);
+        assertThat(wizardLeaderboard.top(2)).extracting(WizardRank::id).containsExactly(1, 2);
+    }
+
+    @Test
+    void testAdjustReorders() {
+        wizardLeaderboard.adjust(3, 2);
+        wizardLeaderboard.adjust(1, -1);
+
+        assertThat(wizardLeaderboard.top(10)).extracting(WizardRank::id).containsExactly(3, 1, 2);
+        assertThat(wizardLeaderboard.top(1).get(0).numbersOfArtifacts()).isEqualTo(3);
+    }
+
+    @Test
+    void testPutRenameAndRemove() {
+        wizardLeaderboard.put(4, "Luna Lovegood", 0);
+        wizardLeaderboard.rename(1, "Albus Dumbledore II");
+        wizardLeaderboard.remove(2);
+
+        assertThat(wizardLeaderboard.top(10)).extracting(WizardRank::name)
+                .containsExactly("Albus Dumbledore II", "Neville Longbottom", "Luna Lovegood");
+    }
+
+    @Test
+    void testAdjustIgnoresUnknownWizard() {
+        wizardLeaderboard.adjust(99, 1);
+
+        assertThat(wizardLeaderboard.top(10)).hasSize(3);
+    }
+}
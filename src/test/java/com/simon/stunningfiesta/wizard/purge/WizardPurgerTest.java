@@ -0,0 +1,140 @@
+package com.simon.stunningfiesta.wizard.purge;
+
+import com.simon.stunningfiesta.artifact.ArtifactRef;
+import com.simon.stunningfiesta.artifact.ArtifactRepository;
+import com.simon.stunningfiesta.artifact.image.ImageBlobStore;
+import com.simon.stunningfiesta.artifact.search.ArtifactSearchIndex;
+import com.simon.stunningfiesta.change.ChangeEntityType;
+import com.simon.stunningfiesta.change.ChangeOperation;
+import com.simon.stunningfiesta.change.ChangeService;
+import com.simon.stunningfiesta.system.CatalogCache;
+import com.simon.stunningfiesta.system.CatalogVersion;
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class WizardPurgerTest {
+
+    @Mock
+    WizardRepository wizardRepository;
+
+    @Mock
+    ArtifactRepository artifactRepository;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    @Mock
+    ArtifactSearchIndex artifactSearchIndex;
+
+    @Mock
+    ImageBlobStore imageBlobStore;
+
+    @Mock
+    CatalogCache catalogCache;
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    ChangeService changeService;
+
+    @Captor
+    ArgumentCaptor<TransactionCallback<Integer>> transactionCallback;
+
+    WizardPurger wizardPurger;
+
+    // A direct executor, the purge is over once start returns.
+    @BeforeEach
+    void setUp() {
+        wizardPurger = new WizardPurger(wizardRepository, artifactRepository, transactionTemplate, artifactSearchIndex,
+                imageBlobStore, catalogCache, catalogVersion, changeService, 2, Runnable::run);
+    }
+
+    @Test
+    void testPurgeDeletesArtifactsInBatchesThenTheWizard() {
+        runTransactions();
+        given(artifactRepository.countByOwnerId(1)).willReturn(3L);
+        given(artifactRepository.findIdsByOwnerId(1, PageRequest.ofSize(2)))
+                .willReturn(List.of(1, 2))
+                .willReturn(List.of(3))
+                .willReturn(List.of());
+        given(artifactRepository.deleteAllByIdsAndOwnerId(List.of(1, 2), 1)).willReturn(2);
+        given(artifactRepository.deleteAllByIdsAndOwnerId(List.of(3), 1)).willReturn(1);
+
+        wizardPurger.start(1);
+
+        verify(wizardRepository).deleteRowById(1);
+        verify(changeService).record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, List.of(1, 2));
+        verify(artifactSearchIndex, times(1)).remove(3);
+        // One transaction per batch, plus the one deleting the wizard.
+        verify(transactionTemplate, times(3)).execute(transactionCallback.capture());
+        WizardPurge purge = wizardPurger.findByWizardId(1);
+        assertThat(purge.state()).isEqualTo(WizardPurge.State.DONE);
+        assertThat(purge.total()).isEqualTo(3);
+        assertThat(purge.removed()).isEqualTo(3);
+    }
+
+    @Test
+    void testPurgeKeepsArtifactsMovedToAnotherWizard() {
+        runTransactions();
+        given(artifactRepository.countByOwnerId(1)).willReturn(2L);
+        given(artifactRepository.findIdsByOwnerId(1, PageRequest.ofSize(2)))
+                .willReturn(List.of(1, 2))
+                .willReturn(List.of());
+        // Artifact 2 was transferred between the read and the delete.
+        given(artifactRepository.deleteAllByIdsAndOwnerId(List.of(1, 2), 1)).willReturn(1);
+        given(artifactRepository.findRefsByIds(List.of(1, 2))).willReturn(List.of(new ArtifactRef(2, "Elder Wand", "", 3)));
+
+        wizardPurger.start(1);
+
+        verify(changeService).record(ChangeEntityType.ARTIFACT, ChangeOperation.DELETE, List.of(1));
+        verify(catalogCache).evictArtifacts(List.of(1));
+        verify(artifactSearchIndex).remove(1);
+        verify(artifactSearchIndex, never()).remove(2);
+        verify(imageBlobStore, never()).remove(2);
+        verify(wizardRepository).deleteRowById(1);
+        assertThat(wizardPurger.findByWizardId(1).removed()).isEqualTo(1);
+    }
+
+    @Test
+    void testPurgeFails() {
+        given(transactionTemplate.execute(transactionCallback.capture()))
+                .willThrow(new IllegalStateException("Database is down"));
+
+        wizardPurger.start(1);
+
+        assertThat(wizardPurger.findByWizardId(1).state()).isEqualTo(WizardPurge.State.FAILED);
+    }
+
+    @Test
+    void testFindByWizardIdErrorWhenNoPurge() {
+        Throwable exception = catchThrowable(() -> wizardPurger.findByWizardId(1));
+
+        assertThat(exception).hasMessage("Could not find wizard purge with Id 1 :(");
+    }
+
+    // Runs each transaction's callback in place, without a transaction.
+    private void runTransactions() {
+        given(transactionTemplate.execute(transactionCallback.capture()))
+                .willAnswer(invocation -> transactionCallback.getValue().doInTransaction(null));
+    }
+}
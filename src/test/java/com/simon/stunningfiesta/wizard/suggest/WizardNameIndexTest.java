@@ -0,0 +1,62 @@
+package com.simon.stunningfiesta.wizard.suggest;
+
+import com.simon.stunningfiesta.wizard.WizardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class WizardNameIndexTest {
+
+    @Mock
+    WizardRepository wizardRepository;
+
+    @InjectMocks
+    WizardNameIndex wizardNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        wizardNameIndex.index(1, "Albus Dumbledore");
+        wizardNameIndex.index(2, "Harry Potter");
+        wizardNameIndex.index(3, "Hermione Granger");
+        wizardNameIndex.index(4, "Gellért Grindelwald");
+    }
+
+    @Test
+    void testSuggestMatchesNamePrefix() {
+        assertThat(wizardNameIndex.suggest("h", 10)).extracting(WizardSuggestion::id).containsExactly(2, 3);
+        assertThat(wizardNameIndex.suggest("harry p", 10)).extracting(WizardSuggestion::name)
+                .containsExactly("Harry Potter");
+    }
+
+    @Test
+    void testSuggestMatchesLaterWords() {
+        assertThat(wizardNameIndex.suggest("gr", 10)).extracting(WizardSuggestion::id).containsExactly(3, 4);
+    }
+
+    @Test
+    void testSuggestFoldsCaseAndDiacritics() {
+        assertThat(wizardNameIndex.suggest("GELLERT", 10)).extracting(WizardSuggestion::name)
+                .containsExactly("Gellért Grindelwald");
+    }
+
+    @Test
+    void testSuggestReturnsOnlyLimit() {
+        assertThat(wizardNameIndex.suggest("h", 1)).extracting(WizardSuggestion::id).containsExactly(2);
+        assertThat(wizardNameIndex.suggest(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void testIndexReplacesPreviousNameAndRemove() {
+        wizardNameIndex.index(2, "Harry James Potter");
+        wizardNameIndex.remove(3);
+
+        assertThat(wizardNameIndex.suggest("james", 10)).extracting(WizardSuggestion::id).containsExactly(2);
+        assertThat(wizardNameIndex.suggest("h", 10)).extracting(WizardSuggestion::id).containsExactly(2);
+    }
+}